@@ -0,0 +1,320 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.softwareleaf.confluence.rest.ConfluenceClient;
+import com.softwareleaf.confluence.rest.model.Body;
+import com.softwareleaf.confluence.rest.model.Content;
+import com.softwareleaf.confluence.rest.model.Space;
+import com.softwareleaf.confluence.rest.model.Storage;
+import com.softwareleaf.confluence.rest.model.Type;
+import retrofit.RetrofitError;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An end-to-end load test of {@code ConfluenceClient} against a {@link StubConfluenceServer},
+ * reporting the throughput, latency percentiles and allocation rate of the client.
+ * <p>A number of threads each share one client, and repeatedly perform an operation
+ * chosen at random from a mix resembling a publishing job: mostly fetching pages by id,
+ * with listings, title lookups and updates. Each run starts with a warm up, whose
+ * requests are not measured.
+ * <p>Arguments are {@code name=value} pairs; the server is configured by those of
+ * {@link StubConfluenceServer#main(String[])}, and the test by:
+ * <ul>
+ * <li>{@code threads}, the number of concurrent callers; default 16.</li>
+ * <li>{@code seconds}, the length of the measured run; default 30.</li>
+ * <li>{@code warmupSeconds}, the length of the warm up; default 10.</li>
+ * </ul>
+ * <p>Example Usage:
+ * <pre>{@code
+ *     java -cp target/benchmarks.jar com.softwareleaf.confluence.rest.benchmarks.LoadTest \
+ *         threads=64 seconds=60 latencyMillis=20 jitterMillis=30 errorRate=0.01
+ * }</pre>
+ * <p>Allocation is measured with {@code com.sun.management.ThreadMXBean}, over every thread
+ * but the stub server's: the calling threads, which build requests and convert responses,
+ * and the transport's own, which send requests and read their responses. A transport
+ * thread that ends during the run is not counted.
+ *
+ * @author Jonathon Hope
+ */
+public final class LoadTest {
+
+    /**
+     * The operations performed, and their relative weights.
+     */
+    private enum Operation {
+        GET_CONTENT_BY_ID(60),
+        GET_CHILDREN(15),
+        GET_BY_TITLE(10),
+        LIST_SPACES(5),
+        UPDATE_CONTENT(10);
+
+        private final int weight;
+
+        Operation(final int weight) {
+            this.weight = weight;
+        }
+
+        static Operation choose(final SplittableRandom random) {
+            int n = random.nextInt(100);
+            for (Operation operation : values()) {
+                n -= operation.weight;
+                if (n < 0) {
+                    return operation;
+                }
+            }
+            return GET_CONTENT_BY_ID;
+        }
+    }
+
+    private final ConfluenceClient client;
+    private final int spaces;
+    private final int pagesPerSpace;
+    private final int threads;
+
+    private LoadTest(final ConfluenceClient client, final int spaces, final int pagesPerSpace, final int threads) {
+        this.client = client;
+        this.spaces = spaces;
+        this.pagesPerSpace = pagesPerSpace;
+        this.threads = threads;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> arguments = parseArguments(args);
+        final int threads = Integer.parseInt(arguments.getOrDefault("threads", "16"));
+        final int seconds = Integer.parseInt(arguments.getOrDefault("seconds", "30"));
+        final int warmupSeconds = Integer.parseInt(arguments.getOrDefault("warmupSeconds", "10"));
+        final int spaces = Integer.parseInt(arguments.getOrDefault("spaces", "10"));
+        final int pagesPerSpace = Integer.parseInt(arguments.getOrDefault("pagesPerSpace", "1000"));
+
+        try (StubConfluenceServer server = StubConfluenceServer.Builder.fromArguments(args).start();
+             ConfluenceClient client = ConfluenceClient.builder()
+                     .baseURL(server.getBaseURL())
+                     .username("load")
+                     .password("test")
+                     .build()) {
+            final LoadTest test = new LoadTest(client, spaces, pagesPerSpace, threads);
+            System.out.printf("Load testing %s with %d threads%n", server.getBaseURL(), threads);
+            test.run(warmupSeconds);
+            final long requestsBefore = server.getRequestCount();
+            final long loginsBefore = server.getLoginCount();
+            final Result result = test.run(seconds);
+            result.print(server.getRequestCount() - requestsBefore);
+            System.out.printf("logins:           %d%n", server.getLoginCount() - loginsBefore);
+        }
+    }
+
+    // runs every thread for the given time, and collects what they measured.
+    private Result run(final int seconds) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final Worker[] workers = new Worker[threads];
+        final CountDownLatch done = new CountDownLatch(threads);
+        final Map<Long, Long> backgroundBefore = backgroundAllocations();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i, deadline, done);
+            workers[i].start();
+        }
+        done.await();
+        long background = 0;
+        for (Map.Entry<Long, Long> after : backgroundAllocations().entrySet()) {
+            background += after.getValue() - backgroundBefore.getOrDefault(after.getKey(), 0L);
+        }
+        return new Result(workers, background, seconds);
+    }
+
+    private void perform(final Operation operation, final SplittableRandom random) {
+        final int space = random.nextInt(spaces);
+        final int page = random.nextInt(pagesPerSpace);
+        final String id = Long.toString(100_000L + (long) space * pagesPerSpace + page);
+        switch (operation) {
+            case GET_CONTENT_BY_ID:
+                client.getContentById(id);
+                break;
+            case GET_CHILDREN:
+                client.getChildren(id, Type.PAGE);
+                break;
+            case GET_BY_TITLE:
+                client.getContentBySpaceKeyAndTitle("SP" + space, "Page " + space + "-" + page);
+                break;
+            case LIST_SPACES:
+                client.getSpaces(random.nextInt(Math.max(1, spaces)), 100);
+                break;
+            case UPDATE_CONTENT:
+                final Content content = new Content(id, Type.PAGE.toString(), new Space("SP" + space),
+                        "Page " + space + "-" + page,
+                        new Body(new Storage("<p>updated " + random.nextInt() + "</p>",
+                                Storage.Representation.STORAGE.toString())));
+                client.updateContent(content);
+                break;
+            default:
+                throw new AssertionError(operation);
+        }
+    }
+
+    /**
+     * A calling thread, which records the latency of each operation it performs.
+     */
+    private final class Worker extends Thread {
+        private final long deadline;
+        private final CountDownLatch done;
+        private final SplittableRandom random;
+        private long[] latencies = new long[1 << 16];
+        private int count;
+        private final Map<String, Integer> errors = new LinkedHashMap<>();
+        private long allocated;
+
+        Worker(final int index, final long deadline, final CountDownLatch done) {
+            super("load-test-" + index);
+            setDaemon(true);
+            this.deadline = deadline;
+            this.done = done;
+            this.random = new SplittableRandom(index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                final long allocatedBefore = allocatedBytes();
+                while (System.nanoTime() < deadline) {
+                    final Operation operation = Operation.choose(random);
+                    final long start = System.nanoTime();
+                    try {
+                        perform(operation, random);
+                    } catch (RetrofitError e) {
+                        final String kind = e.getResponse() == null
+                                ? e.getKind().toString()
+                                : Integer.toString(e.getResponse().getStatus());
+                        errors.merge(kind, 1, Integer::sum);
+                    }
+                    record(System.nanoTime() - start);
+                }
+                allocated = allocatedBytes() - allocatedBefore;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void record(final long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    /**
+     * The combined measurements of every worker.
+     */
+    private static final class Result {
+        private final long[] latencies;
+        private final Map<String, Integer> errors = new LinkedHashMap<>();
+        private final long allocated;
+        private final int seconds;
+
+        Result(final Worker[] workers, final long background, final int seconds) {
+            int total = 0;
+            long bytes = background;
+            for (Worker worker : workers) {
+                total += worker.count;
+                bytes += worker.allocated;
+                worker.errors.forEach((kind, n) -> errors.merge(kind, n, Integer::sum));
+            }
+            latencies = new long[total];
+            int offset = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+                offset += worker.count;
+            }
+            Arrays.sort(latencies);
+            this.allocated = bytes;
+            this.seconds = seconds;
+        }
+
+        void print(final long requests) {
+            final int operations = latencies.length;
+            System.out.printf("operations:       %d (%d requests)%n", operations, requests);
+            System.out.printf("throughput:       %.1f ops/s%n", operations / (double) seconds);
+            System.out.printf("latency p50:      %.2f ms%n", percentile(0.50));
+            System.out.printf("latency p90:      %.2f ms%n", percentile(0.90));
+            System.out.printf("latency p99:      %.2f ms%n", percentile(0.99));
+            System.out.printf("latency p99.9:    %.2f ms%n", percentile(0.999));
+            System.out.printf("latency max:      %.2f ms%n", operations == 0 ? 0 : latencies[operations - 1] / 1e6);
+            System.out.printf("allocation rate:  %.1f MB/s%n", allocated / 1e6 / seconds);
+            System.out.printf("allocation:       %d bytes/op%n", operations == 0 ? 0 : allocated / operations);
+            System.out.printf("errors:           %s%n", errors.isEmpty() ? "none" : errors);
+        }
+
+        private double percentile(final double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    // the bytes allocated so far by each live thread but the workers and the stub server's,
+    // such as the transport's dispatcher threads; by thread id.
+    private static Map<Long, Long> backgroundAllocations() {
+        final Map<Long, Long> allocations = new HashMap<>();
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return allocations;
+        }
+        final long[] ids = threads.getAllThreadIds();
+        final ThreadInfo[] infos = threads.getThreadInfo(ids);
+        final long[] bytes = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] != null && bytes[i] >= 0 && !isExcluded(infos[i].getThreadName())) {
+                allocations.put(ids[i], bytes[i]);
+            }
+        }
+        return allocations;
+    }
+
+    private static boolean isExcluded(final String threadName) {
+        return threadName.startsWith("load-test-")
+                || threadName.startsWith("stub-confluence-")
+                || threadName.startsWith("HTTP-Dispatcher");
+    }
+
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * @param args arguments of the form {@code name=value}.
+     * @return the arguments, by name.
+     * @throws IllegalArgumentException if an argument is not of the form {@code name=value}.
+     */
+    static Map<String, String> parseArguments(final String... args) {
+        final Map<String, String> arguments = new LinkedHashMap<>();
+        final List<String> invalid = new ArrayList<>();
+        for (String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                invalid.add(arg);
+            } else {
+                arguments.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        if (!invalid.isEmpty()) {
+            throw new IllegalArgumentException("Arguments must be name=value pairs: " + invalid);
+        }
+        return arguments;
+    }
+
+}
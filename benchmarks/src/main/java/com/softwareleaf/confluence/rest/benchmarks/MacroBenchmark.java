@@ -0,0 +1,112 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.softwareleaf.confluence.rest.macro.CodeBlockMacro;
+import com.softwareleaf.confluence.rest.macro.ExpandMacro;
+import com.softwareleaf.confluence.rest.macro.HtmlMacro;
+import com.softwareleaf.confluence.rest.macro.JiraIssuesMacro;
+import com.softwareleaf.confluence.rest.macro.TableOfContentsMacro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of every macro to the storage format, and of the JIRA issues
+ * macro to wiki markup.
+ * <p>The JIRA issues and table of contents macros render their markup when they are
+ * built, so those benchmarks build the macro each time, rather than measure a field read.
+ *
+ * @author Jonathon Hope
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MacroBenchmark {
+
+    private CodeBlockMacro codeBlock;
+    private ExpandMacro expand;
+    private HtmlMacro html;
+    private URL jiraIssuesUrl;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        final Random random = new Random(42);
+        final StringBuilder code = new StringBuilder();
+        for (int line = 0; line < 50; line++) {
+            code.append("if (a < b && c > d) { log(\"").append(Payloads.sentence(random, 6)).append("\"); }\n");
+        }
+        codeBlock = CodeBlockMacro.builder()
+                .language(CodeBlockMacro.Languages.JAVA)
+                .title("Example")
+                .showLineNumbers()
+                .code(code.toString())
+                .build();
+        expand = ExpandMacro.builder()
+                .title("Details")
+                .body("<p>" + Payloads.sentence(random, 200) + "</p>")
+                .build();
+        html = new HtmlMacro("<div class=\"report\"><p>" + Payloads.sentence(random, 200) + "</p></div>");
+        jiraIssuesUrl = new URL("https://jira.example.org/sr/jira.issueviews:searchrequest-xml/temp/SearchRequest.xml"
+                + "?jqlQuery=project+%3D+DEV&tempMax=100");
+    }
+
+    @Benchmark
+    public String codeBlockToMarkup() {
+        return codeBlock.toMarkup();
+    }
+
+    @Benchmark
+    public String expandToMarkup() {
+        return expand.toMarkup();
+    }
+
+    @Benchmark
+    public String htmlToMarkup() {
+        return html.toMarkup();
+    }
+
+    @Benchmark
+    public String jiraIssuesToMarkup() {
+        return jiraIssues().toMarkup();
+    }
+
+    @Benchmark
+    public String jiraIssuesToWikiMarkup() {
+        return jiraIssues().toWikiMarkup();
+    }
+
+    @Benchmark
+    public String tableOfContentsToMarkup() {
+        return TableOfContentsMacro.builder()
+                .enableNumbering()
+                .bulletPointStyle(TableOfContentsMacro.ListStyle.CIRCLE)
+                .minHeadingLevel(1)
+                .maxHeadingLevel(4)
+                .build()
+                .toMarkup();
+    }
+
+    private JiraIssuesMacro jiraIssues() {
+        return JiraIssuesMacro.builder()
+                .url(jiraIssuesUrl)
+                .columns(JiraIssuesMacro.Columns.values())
+                .title("Open issues")
+                .width(100)
+                .build();
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.softwareleaf.confluence.rest.macro.CodeBlockMacro;
+import com.softwareleaf.confluence.rest.model.Body;
+import com.softwareleaf.confluence.rest.model.Content;
+import com.softwareleaf.confluence.rest.model.ContentResultList;
+import com.softwareleaf.confluence.rest.model.CreatedBy;
+import com.softwareleaf.confluence.rest.model.History;
+import com.softwareleaf.confluence.rest.model.Parent;
+import com.softwareleaf.confluence.rest.model.Space;
+import com.softwareleaf.confluence.rest.model.Storage;
+import com.softwareleaf.confluence.rest.model.Type;
+import com.softwareleaf.confluence.rest.model.Version;
+
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Synthetic, but realistically shaped, confluence content shared by the benchmarks.
+ * <p>Everything is generated from a fixed seed, so that runs are comparable.
+ *
+ * @author Jonathon Hope
+ */
+final class Payloads {
+
+    /**
+     * Configured as the client configures its own {@code Gson} instance.
+     */
+    static final Gson GSON = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+            .disableHtmlEscaping()
+            .create();
+
+    private static final String[] WORDS = {
+            "release", "notes", "deployment", "service", "configuration", "database",
+            "migration", "the", "and", "of", "client", "server", "request", "latency",
+            "cache", "index", "page", "space", "team", "review"
+    };
+
+    private Payloads() {
+    }
+
+    /**
+     * @param size the number of pieces of content.
+     * @return a page of search results, as the server would return them with
+     * {@literal ancestors,body.storage,space,version,history} expanded.
+     */
+    static ContentResultList contentResultList(final int size) {
+        final Random random = new Random(size);
+        final Content[] contents = new Content[size];
+        for (int i = 0; i < size; i++) {
+            contents[i] = content(random, i);
+        }
+        final ContentResultList list = new ContentResultList(contents);
+        list.setStart(0);
+        list.setLimit(size);
+        list.setSize(size);
+        return list;
+    }
+
+    /**
+     * @param random the source of the words.
+     * @param words  the number of words.
+     * @return a sentence of {@code words} words.
+     */
+    static String sentence(final Random random, final int words) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static Content content(final Random random, final int i) {
+        final Content content = new Content(
+                Integer.toString(1_000_000 + i),
+                Type.PAGE.toString(),
+                new Space("DEV"),
+                "Page " + i + " " + sentence(random, 4),
+                new Body(new Storage(body(random), Storage.Representation.STORAGE.toString())));
+        content.setAncestors(new Parent[]{
+                new Parent("1000000", Type.PAGE.toString()),
+                new Parent(Integer.toString(1_000_000 + i / 10), Type.PAGE.toString())
+        });
+        final CreatedBy author = new CreatedBy();
+        author.setUsername("user" + random.nextInt(50));
+        author.setDisplayName("User " + random.nextInt(50));
+        final Version version = new Version(1 + random.nextInt(20));
+        version.setBy(author);
+        version.setWhen(new Date(1_500_000_000_000L + random.nextInt(1_000_000_000)));
+        content.setVersion(version);
+        final History history = new History();
+        history.setLatest(true);
+        history.setCreatedBy(author);
+        history.setCreatedDate(version.getWhen());
+        content.setHistory(history);
+        return content;
+    }
+
+    // a few paragraphs, a table and a code block; around 2KB.
+    private static String body(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<h1>").append(sentence(random, 3)).append("</h1>");
+        for (int p = 0; p < 4; p++) {
+            sb.append("<p>").append(sentence(random, 40)).append("</p>");
+        }
+        sb.append("<table><tbody>");
+        for (int row = 0; row < 4; row++) {
+            sb.append("<tr><td>").append(sentence(random, 2)).append("</td><td>")
+                    .append(random.nextInt(1000)).append("</td></tr>");
+        }
+        sb.append("</tbody></table>");
+        sb.append(CodeBlockMacro.builder()
+                .language(CodeBlockMacro.Languages.JAVA)
+                .code("System.out.println(\"" + sentence(random, 3) + "\");")
+                .build()
+                .toMarkup());
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.softwareleaf.confluence.rest.model.ContentResultList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@code Gson} (de)serialization of {@code ContentResultList} payloads, as
+ * returned by the content listing and search endpoints.
+ *
+ * @author Jonathon Hope
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * The number of pieces of content in the payload.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private ContentResultList list;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        list = Payloads.contentResultList(size);
+        json = Payloads.GSON.toJson(list);
+    }
+
+    @Benchmark
+    public ContentResultList deserialize() {
+        return Payloads.GSON.fromJson(json, ContentResultList.class);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return Payloads.GSON.toJson(list);
+    }
+
+}
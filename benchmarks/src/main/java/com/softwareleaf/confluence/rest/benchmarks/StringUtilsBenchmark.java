@@ -0,0 +1,49 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.softwareleaf.confluence.rest.util.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the case conversions of {@code StringUtils}, used to derive macro parameter
+ * names from enum constants.
+ *
+ * @author Jonathon Hope
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilsBenchmark {
+
+    @Param({"URL", "RENDER_MODE", "MAX_HEADING_LEVEL_FOR_THE_TABLE_OF_CONTENTS"})
+    public String name;
+
+    @Benchmark
+    public String convertToCamelCase() {
+        return StringUtils.convertToCamelCase(name);
+    }
+
+    @Benchmark
+    public String convertToUpperCamel() {
+        return StringUtils.convertToUpperCamel(name);
+    }
+
+    @Benchmark
+    public String toProperCase() {
+        return StringUtils.toProperCase(name);
+    }
+
+}
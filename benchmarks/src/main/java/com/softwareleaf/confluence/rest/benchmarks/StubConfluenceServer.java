@@ -0,0 +1,737 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.softwareleaf.confluence.rest.model.Body;
+import com.softwareleaf.confluence.rest.model.Content;
+import com.softwareleaf.confluence.rest.model.ContentResultList;
+import com.softwareleaf.confluence.rest.model.Parent;
+import com.softwareleaf.confluence.rest.model.Space;
+import com.softwareleaf.confluence.rest.model.SpaceResultList;
+import com.softwareleaf.confluence.rest.model.Storage;
+import com.softwareleaf.confluence.rest.model.Type;
+import com.softwareleaf.confluence.rest.model.Version;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An embeddable stand-in for a confluence instance, implementing the endpoints of
+ * {@code ConfluenceAPI} over synthetic content, for load testing the client without a
+ * real server.
+ * <p>The server holds {@code spaces} spaces, keyed {@code SP0}, {@code SP1}, ..., each
+ * with {@code pagesPerSpace} pages. The first page of each space is its home page, and
+ * every other page {@code i} is a child of page {@code (i - 1) / 10}. Pages are generated
+ * from their ids as they are requested, so a server of millions of pages costs nothing
+ * to start. Pages that are created, updated or deleted through the API are remembered,
+ * but created pages only appear when fetched by id.
+ * <p>Every response can be delayed, throttled with {@literal 429 Too Many Requests}, or
+ * failed at random with {@literal 503 Service Unavailable}, to imitate a loaded server.
+ * <p>As confluence does, the server starts a session for each request that carries an
+ * {@code Authorization} header but no known {@code JSESSIONID} cookie, and counts these
+ * {@linkplain #getLoginCount() logins}; credentials are not checked.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (StubConfluenceServer server = StubConfluenceServer.builder()
+ *             .spaces(100)
+ *             .pagesPerSpace(1000)
+ *             .latency(Duration.ofMillis(20))
+ *             .errorRate(0.01)
+ *             .start();
+ *          ConfluenceClient client = ConfluenceClient.builder()
+ *                 .baseURL(server.getBaseURL())
+ *                 .build()) {
+ *         ...
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public class StubConfluenceServer implements AutoCloseable {
+
+    /**
+     * The number of children of each page, other than the last pages of a space.
+     */
+    private static final int FAN_OUT = 10;
+    /**
+     * The first id of a synthetic page; ids of created pages follow those of synthetic pages.
+     */
+    private static final long FIRST_ID = 100_000;
+    /**
+     * The default number of results per page, when a request does not give a limit.
+     */
+    private static final int DEFAULT_LIMIT = 25;
+
+    private static final Pattern CONTENT = Pattern.compile("/rest/api/content/(\\d+)");
+    private static final Pattern CHILDREN = Pattern.compile("/rest/api/content/(\\d+)/child/(\\w+)");
+    private static final Pattern CONVERT = Pattern.compile("/rest/api/contentbody/convert/(\\w+)");
+    private static final Pattern SPACE_CONTENT = Pattern.compile("/rest/api/space/([^/]+)/content/(\\w+)");
+    private static final Pattern CQL_SPACE = Pattern.compile("space\\s*=\\s*\"?([^\"\\s]+)\"?");
+    private static final Pattern SESSION_COOKIE = Pattern.compile("(?:^|;\\s*)JSESSIONID=([^;\\s]+)");
+
+    private final int spaces;
+    private final int pagesPerSpace;
+    private final int maxLimit;
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+    private final int maxRequestsPerSecond;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String body;
+
+    // the state of pages changed through the API, by id.
+    private final Map<String, Content> changed = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> deleted = new ConcurrentHashMap<>();
+    private final AtomicLong nextId;
+    // the ids of the sessions started.
+    private final Map<String, Boolean> sessions = new ConcurrentHashMap<>();
+
+    // throttling: the requests admitted in the current second.
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong windowRequests = new AtomicLong();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+
+    /**
+     * Constructor; binds the server and starts accepting requests.
+     *
+     * @param builder the builder instance to use as a factory.
+     * @throws IOException if the server cannot be bound.
+     */
+    private StubConfluenceServer(final Builder builder) throws IOException {
+        this.spaces = builder.spaces;
+        this.pagesPerSpace = builder.pagesPerSpace;
+        this.maxLimit = builder.maxLimit;
+        this.latency = builder.latency;
+        this.jitter = builder.jitter;
+        this.errorRate = builder.errorRate;
+        this.maxRequestsPerSecond = builder.maxRequestsPerSecond;
+        this.body = generateBody(builder.bodySize);
+        this.nextId = new AtomicLong(FIRST_ID + (long) spaces * pagesPerSpace);
+
+        // without this, small responses wait on the client's delayed ACK: about 40ms each.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), 1024);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("stub-confluence-%d")
+                .setDaemon(true)
+                .build());
+        server.setExecutor(executor);
+        server.createContext("/rest/api/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the base URL to configure the client with.
+     */
+    public String getBaseURL() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of requests received.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of requests rejected with {@literal 429}.
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * @return the number of requests failed with {@literal 503}.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the number of requests authenticated by their credentials, rather than by
+     * a session.
+     */
+    public long getLoginCount() {
+        return logins.sum();
+    }
+
+    /**
+     * Stops the server, abandoning any requests in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // starts a session for a request with credentials but no session.
+    private void authenticate(final HttpExchange exchange) {
+        final String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+        final Matcher session = cookie == null ? null : SESSION_COOKIE.matcher(cookie);
+        if (session != null && session.find() && sessions.containsKey(session.group(1))) {
+            return;
+        }
+        if (exchange.getRequestHeaders().getFirst("Authorization") != null) {
+            logins.increment();
+            final String id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            sessions.put(id, Boolean.TRUE);
+            exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=" + id + "; Path=/; HttpOnly");
+        }
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            delay();
+            if (isThrottled()) {
+                throttled.increment();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, error(429, "Rate limit exceeded"));
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failed.increment();
+                respond(exchange, 503, error(503, "Injected failure"));
+                return;
+            }
+            authenticate(exchange);
+            route(exchange);
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(500, String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(final HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath();
+        final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        final String expand = query.getOrDefault("expand", "");
+        Matcher m;
+        if (path.equals("/rest/api/content") && method.equals("GET")) {
+            respond(exchange, 200, listContent(query, expand));
+        } else if (path.equals("/rest/api/content") && method.equals("POST")) {
+            respond(exchange, 200, create(read(exchange, Content.class)));
+        } else if (path.equals("/rest/api/content/search")) {
+            final Matcher space = CQL_SPACE.matcher(query.getOrDefault("cql", ""));
+            final int s = space.find() ? spaceIndex(space.group(1)) : -1;
+            respond(exchange, 200, s < 0 ? page(new ArrayList<>(), query) : spacePages(s, query, expand));
+        } else if ((m = CHILDREN.matcher(path)).matches()) {
+            respond(exchange, 200, children(m.group(1), query, expand));
+        } else if ((m = CONTENT.matcher(path)).matches()) {
+            final String id = m.group(1);
+            switch (method) {
+                case "GET":
+                    final Content content = find(id, expand);
+                    respond(exchange, content == null ? 404 : 200, content == null ? error(404, "No content " + id) : content);
+                    break;
+                case "PUT":
+                    update(exchange, id, read(exchange, Content.class));
+                    break;
+                case "DELETE":
+                    final boolean exists = find(id, "") != null;
+                    deleted.put(id, true);
+                    respond(exchange, exists ? 204 : 404, exists ? null : error(404, "No content " + id));
+                    break;
+                default:
+                    respond(exchange, 405, error(405, method));
+            }
+        } else if ((m = CONVERT.matcher(path)).matches()) {
+            final Storage storage = read(exchange, Storage.class);
+            respond(exchange, 200, new Storage(storage.getValue(), m.group(1)));
+        } else if (path.equals("/rest/api/space") && method.equals("GET")) {
+            respond(exchange, 200, listSpaces(query));
+        } else if (path.startsWith("/rest/api/space") && method.equals("POST")) {
+            respond(exchange, 200, read(exchange, Space.class));
+        } else if ((m = SPACE_CONTENT.matcher(path)).matches()) {
+            final int s = spaceIndex(m.group(1));
+            if (s < 0) {
+                respond(exchange, 404, error(404, "No space " + m.group(1)));
+            } else if (query.containsKey("depth") && query.get("depth").equals("root")) {
+                respond(exchange, 200, page(singletonPage(s, expand), query));
+            } else {
+                respond(exchange, 200, spacePages(s, query, expand));
+            }
+        } else {
+            respond(exchange, 404, error(404, "No endpoint " + method + " " + path));
+        }
+    }
+
+    private ContentResultList listContent(final Map<String, String> query, final String expand) {
+        final String spaceKey = query.get("spaceKey");
+        final String title = query.get("title");
+        if (spaceKey != null && title != null) {
+            final int s = spaceIndex(spaceKey);
+            final List<Content> found = new ArrayList<>();
+            final Matcher m = Pattern.compile("Page " + s + "-(\\d+)").matcher(title);
+            if (s >= 0 && m.matches() && Long.parseLong(m.group(1)) < pagesPerSpace) {
+                final Content content = find(Long.toString(FIRST_ID + (long) s * pagesPerSpace
+                        + Long.parseLong(m.group(1))), expand);
+                if (content != null) {
+                    found.add(content);
+                }
+            }
+            return page(found, query);
+        }
+        return spacePages(0, query, expand);
+    }
+
+    // the pages of space s, with the requested start and limit applied.
+    private ContentResultList spacePages(final int s, final Map<String, String> query, final String expand) {
+        final int start = intParam(query, "start", 0);
+        final int limit = limit(query);
+        final List<Content> results = new ArrayList<>(limit);
+        for (int i = start; i < pagesPerSpace && results.size() < limit; i++) {
+            final Content content = find(Long.toString(FIRST_ID + (long) s * pagesPerSpace + i), expand);
+            if (content != null) {
+                results.add(content);
+            }
+        }
+        return result(results, start, limit);
+    }
+
+    private List<Content> singletonPage(final int s, final String expand) {
+        final List<Content> home = new ArrayList<>(1);
+        final Content content = find(Long.toString(FIRST_ID + (long) s * pagesPerSpace), expand);
+        if (content != null) {
+            home.add(content);
+        }
+        return home;
+    }
+
+    private ContentResultList children(final String parentId, final Map<String, String> query, final String expand) {
+        final List<Content> all = new ArrayList<>();
+        final long id = Long.parseLong(parentId) - FIRST_ID;
+        if (id >= 0 && id < (long) spaces * pagesPerSpace) {
+            final long base = id - id % pagesPerSpace;
+            final long i = id % pagesPerSpace;
+            for (long child = i * FAN_OUT + 1; child <= i * FAN_OUT + FAN_OUT && child < pagesPerSpace; child++) {
+                final Content content = find(Long.toString(FIRST_ID + base + child), expand);
+                if (content != null) {
+                    all.add(content);
+                }
+            }
+        }
+        return page(all, query);
+    }
+
+    private SpaceResultList listSpaces(final Map<String, String> query) {
+        final int start = intParam(query, "start", 0);
+        final int limit = limit(query);
+        final List<Space> results = new ArrayList<>(limit);
+        for (int s = start; s < spaces && results.size() < limit; s++) {
+            final Space space = new Space("SP" + s);
+            space.setName("Space " + s);
+            results.add(space);
+        }
+        final SpaceResultList list = new SpaceResultList();
+        list.setSpaces(results.toArray(new Space[results.size()]));
+        list.setStart(start);
+        list.setLimit(limit);
+        list.setSize(results.size());
+        return list;
+    }
+
+    private Content create(final Content content) {
+        final String id = Long.toString(nextId.getAndIncrement());
+        content.setId(id);
+        content.setVersion(new Version(1));
+        changed.put(id, content);
+        return content;
+    }
+
+    private void update(final HttpExchange exchange, final String id, final Content content) throws IOException {
+        final Content current = find(id, "version");
+        if (current == null) {
+            respond(exchange, 404, error(404, "No content " + id));
+            return;
+        }
+        final int expected = current.getVersion().getNumber() + 1;
+        if (content.getVersion() == null || content.getVersion().getNumber() == null
+                || content.getVersion().getNumber() != expected) {
+            respond(exchange, 409, error(409, "Version must be " + expected));
+            return;
+        }
+        content.setId(id);
+        if (content.getSpace() == null) {
+            content.setSpace(current.getSpace());
+        }
+        // another update may have been accepted since current was read.
+        final boolean accepted = changed.get(id) == current
+                ? changed.replace(id, current, content)
+                : changed.putIfAbsent(id, content) == null;
+        if (!accepted) {
+            respond(exchange, 409, error(409, "Content " + id + " was updated concurrently"));
+            return;
+        }
+        respond(exchange, 200, content);
+    }
+
+    // the current state of the content with the given id, or null.
+    private Content find(final String id, final String expand) {
+        if (deleted.containsKey(id)) {
+            return null;
+        }
+        final Content stored = changed.get(id);
+        if (stored != null) {
+            return stored;
+        }
+        final long n;
+        try {
+            n = Long.parseLong(id) - FIRST_ID;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (n < 0 || n >= (long) spaces * pagesPerSpace) {
+            return null;
+        }
+        final int s = (int) (n / pagesPerSpace);
+        final long i = n % pagesPerSpace;
+        final Content content = new Content(id, Type.PAGE.toString(), null, "Page " + s + "-" + i, null);
+        if (expand.contains("space")) {
+            content.setSpace(new Space("SP" + s));
+        }
+        if (expand.contains("body.storage")) {
+            content.setBody(new Body(new Storage(body, Storage.Representation.STORAGE.toString())));
+        }
+        if (expand.contains("version")) {
+            content.setVersion(new Version(1));
+        }
+        if (expand.contains("ancestors")) {
+            final List<Parent> ancestors = new ArrayList<>();
+            for (long a = i; a > 0; ) {
+                a = (a - 1) / FAN_OUT;
+                ancestors.add(0, new Parent(Long.toString(FIRST_ID + (long) s * pagesPerSpace + a), Type.PAGE.toString()));
+            }
+            content.setAncestors(ancestors.toArray(new Parent[ancestors.size()]));
+        }
+        return content;
+    }
+
+    private ContentResultList page(final List<Content> all, final Map<String, String> query) {
+        final int start = Math.min(intParam(query, "start", 0), all.size());
+        final int limit = limit(query);
+        return result(all.subList(start, Math.min(all.size(), start + limit)), start, limit);
+    }
+
+    private static ContentResultList result(final List<Content> contents, final int start, final int limit) {
+        final ContentResultList list = new ContentResultList(contents.toArray(new Content[contents.size()]));
+        list.setStart(start);
+        list.setLimit(limit);
+        list.setSize(contents.size());
+        return list;
+    }
+
+    private int spaceIndex(final String key) {
+        if (!key.startsWith("SP")) {
+            return -1;
+        }
+        try {
+            final int s = Integer.parseInt(key.substring(2));
+            return s < spaces ? s : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int limit(final Map<String, String> query) {
+        return Math.max(1, Math.min(maxLimit, intParam(query, "limit", DEFAULT_LIMIT)));
+    }
+
+    private static int intParam(final Map<String, String> query, final String name, final int defaultValue) {
+        final String value = query.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private void delay() {
+        long nanos = latency.toNanos();
+        if (!jitter.isZero()) {
+            nanos += ThreadLocalRandom.current().nextLong(jitter.toNanos());
+        }
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // a fixed window of one second; good enough to imitate a rate limited server.
+    private boolean isThrottled() {
+        if (maxRequestsPerSecond <= 0) {
+            return false;
+        }
+        final long second = System.nanoTime() / 1_000_000_000L;
+        final long current = window.get();
+        if (current != second && window.compareAndSet(current, second)) {
+            windowRequests.set(0);
+        }
+        return windowRequests.incrementAndGet() > maxRequestsPerSecond;
+    }
+
+    private static Map<String, String> parseQuery(final String raw) throws UnsupportedEncodingException {
+        final Map<String, String> query = new HashMap<>();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                final int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                            URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static <T> T read(final HttpExchange exchange, final Class<T> type) throws IOException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            return Payloads.GSON.fromJson(reader, type);
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final Object entity) throws IOException {
+        if (entity == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        final byte[] bytes = Payloads.GSON.toJson(entity).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> error(final int status, final String message) {
+        final Map<String, Object> error = new HashMap<>();
+        error.put("statusCode", status);
+        error.put("message", message);
+        return error;
+    }
+
+    // paragraphs of words, shared by every synthetic page.
+    private static String generateBody(final int size) {
+        final Random random = new Random(size);
+        final StringBuilder sb = new StringBuilder(size + 512);
+        while (sb.length() < size) {
+            sb.append("<p>").append(Payloads.sentence(random, 40)).append("</p>");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs a server until the process is killed, for pointing other tools at. Arguments
+     * are the builder properties as {@code name=value} pairs, for example
+     * {@code port=8090 spaces=100 latencyMillis=20}.
+     *
+     * @param args the builder properties.
+     * @throws Exception if the server cannot be started.
+     */
+    public static void main(final String[] args) throws Exception {
+        final StubConfluenceServer server = Builder.fromArguments(args).start();
+        System.out.println("Serving " + server.spaces + " spaces of " + server.pagesPerSpace
+                + " pages at " + server.getBaseURL());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @return a {@code Builder} instance for chain-building a {@code StubConfluenceServer}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code StubConfluenceServer}.
+     */
+    public static class Builder {
+        private int port;
+        private int spaces = 10;
+        private int pagesPerSpace = 1000;
+        private int bodySize = 2048;
+        private int maxLimit = 200;
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private double errorRate;
+        private int maxRequestsPerSecond;
+
+        // prevent direct instantiation by external classes.
+        private Builder() {
+        }
+
+        /**
+         * @param args builder properties as {@code name=value} pairs.
+         * @return a builder configured by {@code args}.
+         */
+        static Builder fromArguments(final String... args) {
+            final Builder builder = new Builder();
+            final Map<String, String> properties = LoadTest.parseArguments(args);
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                final String value = property.getValue();
+                switch (property.getKey()) {
+                    case "port":
+                        builder.port(Integer.parseInt(value));
+                        break;
+                    case "spaces":
+                        builder.spaces(Integer.parseInt(value));
+                        break;
+                    case "pagesPerSpace":
+                        builder.pagesPerSpace(Integer.parseInt(value));
+                        break;
+                    case "bodySize":
+                        builder.bodySize(Integer.parseInt(value));
+                        break;
+                    case "maxLimit":
+                        builder.maxLimit(Integer.parseInt(value));
+                        break;
+                    case "latencyMillis":
+                        builder.latency(Duration.ofMillis(Long.parseLong(value)));
+                        break;
+                    case "jitterMillis":
+                        builder.jitter(Duration.ofMillis(Long.parseLong(value)));
+                        break;
+                    case "errorRate":
+                        builder.errorRate(Double.parseDouble(value));
+                        break;
+                    case "maxRequestsPerSecond":
+                        builder.maxRequestsPerSecond(Integer.parseInt(value));
+                        break;
+                    default:
+                        // the remaining properties configure the load test.
+                }
+            }
+            return builder;
+        }
+
+        /**
+         * @param port the port to listen on; {@code 0}, the default, picks a free port.
+         * @return {@code this}.
+         */
+        public Builder port(final int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param spaces the number of spaces.
+         * @return {@code this}.
+         */
+        public Builder spaces(final int spaces) {
+            this.spaces = spaces;
+            return this;
+        }
+
+        /**
+         * @param pagesPerSpace the number of pages in each space.
+         * @return {@code this}.
+         */
+        public Builder pagesPerSpace(final int pagesPerSpace) {
+            if (pagesPerSpace < 1) {
+                throw new IllegalArgumentException("pagesPerSpace must be at least 1.");
+            }
+            this.pagesPerSpace = pagesPerSpace;
+            return this;
+        }
+
+        /**
+         * @param bodySize the approximate length of the storage body of each page.
+         * @return {@code this}.
+         */
+        public Builder bodySize(final int bodySize) {
+            this.bodySize = bodySize;
+            return this;
+        }
+
+        /**
+         * @param maxLimit the most results the server returns per page, whatever the
+         *                 limit requested.
+         * @return {@code this}.
+         */
+        public Builder maxLimit(final int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * @param latency the time every request takes, before any jitter.
+         * @return {@code this}.
+         */
+        public Builder latency(final Duration latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * @param jitter the most time added to the latency of a request, at random.
+         * @return {@code this}.
+         */
+        public Builder jitter(final Duration jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param errorRate the fraction of requests to fail with {@literal 503}.
+         * @return {@code this}.
+         */
+        public Builder errorRate(final double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerSecond the requests admitted per second, after which
+         *                             requests are rejected with {@literal 429};
+         *                             {@code 0}, the default, for no limit.
+         * @return {@code this}.
+         */
+        public Builder maxRequestsPerSecond(final int maxRequestsPerSecond) {
+            this.maxRequestsPerSecond = maxRequestsPerSecond;
+            return this;
+        }
+
+        /**
+         * @return a new, started, instance of {@code StubConfluenceServer}.
+         * @throws IOException if the server cannot be bound.
+         */
+        public StubConfluenceServer start() throws IOException {
+            return new StubConfluenceServer(this);
+        }
+    }
+
+}
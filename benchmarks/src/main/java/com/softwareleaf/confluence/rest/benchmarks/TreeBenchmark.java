@@ -0,0 +1,83 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.softwareleaf.confluence.rest.util.Tree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a {@code Tree} of page ids, and looking up the children of a page.
+ * <p>The tree is shaped like a space: a home page with {@code sqrt(size)} sections, each of
+ * which has {@code sqrt(size)} pages.
+ *
+ * @author Jonathon Hope
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    private static final String ROOT = "home";
+
+    /**
+     * The approximate number of pages in the tree.
+     */
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private String[] sections;
+    private String[][] pages;
+    private Tree<String> tree;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final int fanOut = (int) Math.sqrt(size);
+        sections = new String[fanOut];
+        pages = new String[fanOut][fanOut];
+        for (int s = 0; s < fanOut; s++) {
+            sections[s] = "section-" + s;
+            for (int p = 0; p < fanOut; p++) {
+                pages[s][p] = "page-" + s + "-" + p;
+            }
+        }
+        tree = build();
+    }
+
+    @Benchmark
+    public Tree<String> buildTree() {
+        return build();
+    }
+
+    @Benchmark
+    public List<Tree<String>> findChildrenOf() {
+        next = (next + 1) % sections.length;
+        return tree.findChildrenOf(sections[next]);
+    }
+
+    private Tree<String> build() {
+        final Tree.TreeBuilder<String> builder = Tree.builder(ROOT);
+        for (int s = 0; s < sections.length; s++) {
+            builder.addChild(ROOT, sections[s]);
+            for (String page : pages[s]) {
+                builder.addChild(sections[s], page);
+            }
+        }
+        return builder.build();
+    }
+
+}
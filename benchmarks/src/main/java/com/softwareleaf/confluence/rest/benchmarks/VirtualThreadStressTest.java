@@ -0,0 +1,196 @@
+package com.softwareleaf.confluence.rest.benchmarks;
+
+import com.softwareleaf.confluence.rest.ConfluenceClient;
+import retrofit.RetrofitError;
+import retrofit.client.OkClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls {@code ConfluenceClient#getContentById} from a large number of virtual threads at
+ * once, against a {@link StubConfluenceServer}, and reports how long they took and whether
+ * any of them pinned its carrier thread.
+ * <p>Requires JDK 21 or later; the virtual threads are created reflectively, as the
+ * benchmarks are compiled for Java 8. Pinning is detected with
+ * {@code -Djdk.tracePinnedThreads=short}, which is set if not already given, and which
+ * reports each call site that blocked while holding a monitor once. The detector is
+ * calibrated before the run by pinning a thread deliberately.
+ * <p>If the server is given a {@code latencyMillis}, the throughput is also checked against
+ * that of {@code maxRequestsPerHost} requests in flight at all times; a transport that
+ * sends fewer at once, such as one that serialises requests behind the limit, is reported.
+ * <p>The stub server speaks plaintext HTTP/1.1, so this cannot observe pinning that only
+ * happens over HTTP/2, such as a caller reading an unbuffered response body.
+ * <p>Arguments are {@code name=value} pairs; the server is configured by those of
+ * {@link StubConfluenceServer#main(String[])}, and the test by:
+ * <ul>
+ * <li>{@code threads}, the number of virtual threads, each making one call; default 100000.</li>
+ * <li>{@code maxRequestsPerHost}, the bound on requests in flight; default 64.</li>
+ * <li>{@code transport}, {@code okhttp3} for the default transport, or {@code okhttp2} for
+ * Retrofit's synchronous {@code OkClient}; default {@code okhttp3}.</li>
+ * </ul>
+ * <p>Example Usage:
+ * <pre>{@code
+ *     java -cp target/benchmarks.jar com.softwareleaf.confluence.rest.benchmarks.VirtualThreadStressTest \
+ *         threads=1000000 latencyMillis=50
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public final class VirtualThreadStressTest {
+
+    private VirtualThreadStressTest() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> arguments = LoadTest.parseArguments(args);
+        final int threads = Integer.parseInt(arguments.getOrDefault("threads", "100000"));
+        final int maxRequestsPerHost = Integer.parseInt(arguments.getOrDefault("maxRequestsPerHost", "64"));
+        final String transport = arguments.getOrDefault("transport", "okhttp3");
+        final int pagesPerSpace = Integer.parseInt(arguments.getOrDefault("pagesPerSpace", "1000"));
+        final long latencyMillis = Long.parseLong(arguments.getOrDefault("latencyMillis", "0"));
+
+        if (System.getProperty("jdk.tracePinnedThreads") == null) {
+            System.setProperty("jdk.tracePinnedThreads", "short");
+        }
+        final PinningDetector pinning = new PinningDetector(System.out);
+        System.setOut(new PrintStream(pinning, true));
+
+        final ExecutorService virtualThreads;
+        try {
+            virtualThreads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            System.err.println("Virtual threads require JDK 21 or later; running on " + System.getProperty("java.version"));
+            return;
+        }
+        calibrate(virtualThreads, pinning);
+
+        try (StubConfluenceServer server = StubConfluenceServer.Builder.fromArguments(args).start()) {
+            final ConfluenceClient.Builder builder = ConfluenceClient.builder()
+                    .baseURL(server.getBaseURL())
+                    .maxRequestsPerHost(maxRequestsPerHost);
+            if (transport.equals("okhttp2")) {
+                builder.supplyClient(new OkClient());
+            }
+            try (ConfluenceClient client = builder.build()) {
+                final LongAdder failures = new LongAdder();
+                final long start = System.nanoTime();
+                final List<Future<?>> calls = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    final String id = Long.toString(100_000L + i % pagesPerSpace);
+                    calls.add(virtualThreads.submit(() -> {
+                        try {
+                            client.getContentById(id);
+                        } catch (RetrofitError e) {
+                            failures.increment();
+                        }
+                    }));
+                }
+                for (Future<?> call : calls) {
+                    call.get();
+                }
+                final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+                virtualThreads.shutdown();
+
+                pinning.flush();
+                System.err.printf("transport:          %s, at most %d requests per host%n", transport, maxRequestsPerHost);
+                System.err.printf("virtual threads:    %d, %d failed%n", threads, failures.sum());
+                System.err.printf("elapsed:            %d ms%n", elapsed.toMillis());
+                final double throughput = threads / (elapsed.toNanos() / 1e9);
+                System.err.printf("throughput:         %.1f calls/s%n", throughput);
+                if (latencyMillis > 0) {
+                    // each request in flight completes one call per latency, at best.
+                    final double limit = Math.min(threads, maxRequestsPerHost) * 1000.0 / latencyMillis;
+                    System.err.printf("of the limit:       %.0f%% of %.1f calls/s%n", 100 * throughput / limit, limit);
+                    if (throughput < limit / 2) {
+                        System.err.println("warning: fewer requests are in flight than maxRequestsPerHost allows");
+                    }
+                }
+                System.err.printf("pinned call sites:  %d%n", pinning.getPinnedSites());
+                if (pinning.getPinnedSites() > 0) {
+                    System.err.println(pinning.getReport());
+                }
+            }
+        }
+    }
+
+    // pins a virtual thread deliberately, to check that pinning is being reported.
+    private static void calibrate(final ExecutorService virtualThreads, final PinningDetector pinning) throws Exception {
+        final Object monitor = new Object();
+        virtualThreads.submit(() -> {
+            synchronized (monitor) {
+                Thread.sleep(1);
+            }
+            return null;
+        }).get();
+        pinning.flush();
+        if (pinning.getPinnedSites() == 0) {
+            System.err.println("warning: pinning is not being reported; is -Djdk.tracePinnedThreads overridden?");
+        }
+        pinning.reset();
+    }
+
+    /**
+     * Passes standard output through, while counting the pinned call sites reported in it.
+     */
+    private static final class PinningDetector extends OutputStream {
+        private final PrintStream out;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final StringBuilder report = new StringBuilder();
+        private int pinnedSites;
+
+        PinningDetector(final PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(final int b) {
+            out.write(b);
+            if (b == '\n') {
+                endLine();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void flush() {
+            out.flush();
+        }
+
+        private void endLine() {
+            final String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            line.reset();
+            if (text.startsWith("Thread[")) {
+                pinnedSites++;
+            }
+            if (pinnedSites > 0) {
+                report.append(text).append('\n');
+            }
+        }
+
+        int getPinnedSites() {
+            return pinnedSites;
+        }
+
+        String getReport() {
+            return report.toString();
+        }
+
+        void reset() {
+            pinnedSites = 0;
+            report.setLength(0);
+        }
+    }
+
+}
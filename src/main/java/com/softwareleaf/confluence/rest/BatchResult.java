@@ -0,0 +1,72 @@
+package com.softwareleaf.confluence.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of an operation applied to many pieces of content by a {@link ContentBatch}:
+ * the ids of the content it succeeded for, those it was skipped for, and the failures.
+ *
+ * @author Jonathon Hope
+ */
+public final class BatchResult {
+
+    private final List<String> succeeded = new ArrayList<>();
+    private final List<String> skipped = new ArrayList<>();
+    private final Map<String, RuntimeException> failures = new LinkedHashMap<>();
+
+    BatchResult() {
+    }
+
+    // the recording methods are called by the threads performing the batch.
+
+    synchronized void succeeded(final String id) {
+        succeeded.add(id);
+    }
+
+    synchronized void skipped(final String id) {
+        skipped.add(id);
+    }
+
+    synchronized void failed(final String id, final RuntimeException e) {
+        failures.put(id, e);
+    }
+
+    /**
+     * @return the ids of the content the operation succeeded for, in order of completion.
+     */
+    public synchronized List<String> getSucceeded() {
+        return Collections.unmodifiableList(new ArrayList<>(succeeded));
+    }
+
+    /**
+     * @return the ids of the content that needed no change, in order of completion.
+     */
+    public synchronized List<String> getSkipped() {
+        return Collections.unmodifiableList(new ArrayList<>(skipped));
+    }
+
+    /**
+     * @return the exception thrown for each piece of content the operation failed for, by id.
+     */
+    public synchronized Map<String, RuntimeException> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    /**
+     * @return {@code true} if the operation failed for no content.
+     */
+    public synchronized boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BatchResult{succeeded=" + succeeded.size() + ", skipped=" + skipped.size()
+                + ", failed=" + failures.keySet() + '}';
+    }
+
+}
@@ -4,6 +4,7 @@ import com.softwareleaf.confluence.rest.model.*;
 import retrofit.Callback;
 import retrofit.http.Body;
 import retrofit.http.*;
+import retrofit.mime.TypedOutput;
 
 import java.util.Map;
 
@@ -32,9 +33,27 @@ public interface ConfluenceAPI {
      * of {@code Content} instances obtained from the API call.
      */
     @GET("/rest/api/content")
-    ContentResultList getContentBySpaceKeyAndTitle(final @Query("key") String key,
+    ContentResultList getContentBySpaceKeyAndTitle(final @Query("spaceKey") String key,
                                                    final @Query("title") String title);
 
+    /**
+     * Search for content using the Confluence Query Language (CQL).
+     * <p>For example:
+     * <pre>{@literal
+     *     GET /rest/api/content/search?cql=space=DEV and type=page and label=report&start=0&limit=100
+     * }</pre>
+     *
+     * @param cql    the CQL query.
+     * @param params the remaining query parameters, such as {@literal start}, {@literal limit}
+     *               and {@literal expand}.
+     * @return a page of the content matching {@code cql}.
+     * @see <a href="https://developer.atlassian.com/confdev/confluence-rest-api/advanced-searching-using-cql">
+     * Advanced Searching using CQL</a>
+     */
+    @GET("/rest/api/content/search")
+    ContentResultList searchContent(final @Query("cql") String cql,
+                                    final @QueryMap Map<String, String> params);
+
     /**
      * Fetch the children for a given {@code Content} identified by the {@code parentId}.
      *
@@ -57,6 +76,30 @@ public interface ConfluenceAPI {
     @GET("/rest/api/content/{id}" + QueryParams.EXPAND_BODY_STORAGE)
     Content getContentById(final @Path("id") String id);
 
+    /**
+     * GET Content, expanding the given properties.
+     *
+     * @param id     the id of the page or blog post to fetch.
+     * @param expand a comma separated list of the properties to expand, for example {@literal "version"}.
+     * @return the Content instance representing the JSON response.
+     */
+    @GET("/rest/api/content/{id}")
+    Content getContentById(final @Path("id") String id,
+                           final @Query("expand") String expand);
+
+    /**
+     * PUT Content. Updates a piece of content, creating a new version of it.
+     * <p>The {@code version.number} of {@code content} must be one more than that of the
+     * latest version, otherwise the server responds with {@literal 409 Conflict}.
+     *
+     * @param id      the id of the piece of content to update.
+     * @param content the new state of the content, including its new version number.
+     * @return the updated {@code Content}.
+     */
+    @PUT("/rest/api/content/{id}")
+    Content updateContent(final @Path("id") String id,
+                          final @Body Content content);
+
     /**
      * POST Conversion request. Used for converting between storage formats.
      *
@@ -78,6 +121,15 @@ public interface ConfluenceAPI {
     @POST("/rest/api/content")
     Content postContent(final @Body Content content);
 
+    /**
+     * POST Content, with a request body that is written to the connection as it is sent.
+     *
+     * @param content the JSON representation of the {@code Content} to post.
+     * @return The {@code Content} reference updated (with id) by confluence.
+     */
+    @POST("/rest/api/content")
+    Content postContent(final @Body TypedOutput content);
+
     /**
      * Same as {@link #postContent} but clients can provide a callback with success
      * and failure hooks.
@@ -116,6 +168,16 @@ public interface ConfluenceAPI {
     @GET("/rest/api/space")
     SpaceResultList getSpaces();
 
+    /**
+     * Obtain a page of the available spaces.
+     *
+     * @param params the query parameters, such as {@literal start} and {@literal limit}.
+     * @return an instance of {@code SpaceResultList} holding a page of the spaces
+     * available on confluence.
+     */
+    @GET("/rest/api/space")
+    SpaceResultList getSpaces(final @QueryMap Map<String, String> params);
+
     /**
      * Creates a new Confluence {@code Space} using {@code key} and
      * {@code name} of the given {@code space}.
@@ -160,4 +222,17 @@ public interface ConfluenceAPI {
     ContentResultList getRootContentBySpaceKey(final @Path("spaceKey") String spaceKey,
                                                final @Path("type") String contentType);
 
+    /**
+     * Obtain paginated results of root content available from a given space.
+     *
+     * @param spaceKey    the space key of the space to search.
+     * @param contentType the type of content to return.
+     * @param params      the query parameters.
+     * @return a wrapper model around the {@link ContentResultList} resulting from this call.
+     */
+    @GET("/rest/api/space/{spaceKey}/content/{type}")
+    ContentResultList getRootContentBySpaceKey(final @Path("spaceKey") String spaceKey,
+                                               final @Path("type") String contentType,
+                                               final @QueryMap Map<String, String> params);
+
 }
@@ -1,18 +1,43 @@
 package com.softwareleaf.confluence.rest;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.softwareleaf.confluence.rest.auth.AuthProvider;
+import com.softwareleaf.confluence.rest.auth.BasicAuthProvider;
+import com.softwareleaf.confluence.rest.macro.LocalWikiConverter;
+import com.softwareleaf.confluence.rest.macro.StorageDiff;
+import com.softwareleaf.confluence.rest.macro.StorageWriter;
 import com.softwareleaf.confluence.rest.model.*;
+import com.softwareleaf.confluence.rest.trace.Span;
+import com.softwareleaf.confluence.rest.trace.Tracer;
+import com.softwareleaf.confluence.rest.transport.AuthenticatingTransport;
+import com.softwareleaf.confluence.rest.transport.ClientTransport;
+import com.softwareleaf.confluence.rest.transport.HostLimitingTransport;
+import com.softwareleaf.confluence.rest.transport.LoadBalancingTransport;
+import com.softwareleaf.confluence.rest.transport.OkHttp3Transport;
+import com.softwareleaf.confluence.rest.transport.TracingTransport;
+import com.softwareleaf.confluence.rest.transport.Transport;
+import com.softwareleaf.confluence.rest.transport.TransportClient;
+import org.reactivestreams.Publisher;
 import retrofit.Callback;
 import retrofit.RestAdapter;
+import retrofit.RetrofitError;
 import retrofit.client.Client;
 import retrofit.converter.GsonConverter;
 
+import java.io.Reader;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A class that is capable of making requests to the confluence API.
@@ -30,10 +55,12 @@ import java.util.stream.Collectors;
  *     ContentResultList search =
  *     confluenceClient.getContentBySpaceKeyAndTitle("DEV", "A page or blog in DEV");
  * }</pre>
+ * A client that is no longer needed should be {@linkplain #close() closed}, to release
+ * the connections and threads of its transport.
  *
  * @author Jonathon Hope
  */
-public class ConfluenceClient {
+public class ConfluenceClient implements AutoCloseable {
     /**
      * The default base url is the production confluence instance.
      */
@@ -41,22 +68,75 @@ public class ConfluenceClient {
     // default account credentials
     private static final String DEFAULT_USERNAME = "admin";
     private static final String DEFAULT_PASSWORD = "admin";
+    /**
+     * The number of results requested per page when streaming paginated results.
+     */
+    private static final int PAGE_SIZE = 100;
+    /**
+     * The maximum number of body hashes remembered by {@link #isBodyUnchanged(String, Storage)}.
+     */
+    private static final long BODY_HASH_CACHE_SIZE = 10_000;
+    /**
+     * The number of times an update is retried after a version conflict.
+     */
+    private static final int MAX_CONFLICT_RETRIES = 3;
 
     /**
      * the Logger instance used by this class.
      */
     private static final Logger logger = Logger.getLogger(ConfluenceClient.class.getName());
 
+    /**
+     * The {@code Gson} instance used to (de)serialize request and response bodies.
+     */
+    private static final Gson GSON = new GsonBuilder()
+            // handles confluence Date format
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+                    // ensures body.storage HTML is not escaped
+            .disableHtmlEscaping()
+            .create();
+
     /**
      * The ConfluenceAPI endpoint.
      */
     private ConfluenceAPI confluenceAPI;
+    /**
+     * The canonical hash of the body of the latest version of each piece of content
+     * fetched, by content id; or {@code null} if bodies are not remembered.
+     *
+     * @see StorageDiff#canonicalHash(String)
+     * @see Builder#rememberBodies(boolean)
+     */
+    private final Cache<String, Long> bodyHashes;
+    /**
+     * Traces the operations made of several calls; the calls themselves are traced by the transport.
+     */
+    private final Tracer tracer;
+    /**
+     * The transports the client sends requests with, as decorated by the builder.
+     */
+    private final Transport transport;
 
     /**
      * Constructor.
      */
     private ConfluenceClient(Builder builder) {
         this.confluenceAPI = builder.confluenceAPI;
+        this.transport = builder.resolvedTransport;
+        this.tracer = builder.tracer;
+        this.bodyHashes = builder.rememberBodies
+                ? CacheBuilder.newBuilder().maximumSize(BODY_HASH_CACHE_SIZE).<String, Long>build()
+                : null;
+    }
+
+    /**
+     * Releases the connections and threads of the transport the client created. A
+     * transport given to {@link Builder#transport(Transport)} is left open, for its owner
+     * to close.
+     */
+    @Override
+    public void close() {
+        transport.close();
     }
 
     /**
@@ -66,7 +146,53 @@ public class ConfluenceClient {
      * @return the Content instance.
      */
     public Content getContentById(String id) {
-        return confluenceAPI.getContentById(id);
+        final Content content = confluenceAPI.getContentById(id);
+        rememberBody(content);
+        return content;
+    }
+
+    /**
+     * Determines whether {@code storage} is structurally the same as the body of the latest
+     * version of the content with the given {@code id}, in which case updating the content
+     * would only create a new, identical, version.
+     * <p>The current body is fetched for the comparison; unless the client
+     * {@linkplain Builder#rememberBodies(boolean) remembers bodies}, in which case the
+     * canonical hash of the body fetched most recently by this client is used, so the
+     * content is only fetched if it has not been fetched before.
+     *
+     * @param id      the id of the page or blog post.
+     * @param storage the proposed new body, in storage representation.
+     * @return {@code true} if the proposed body is equivalent to the current one.
+     * @see StorageDiff
+     */
+    public boolean isBodyUnchanged(final String id, final Storage storage) {
+        if (storage == null) {
+            return false;
+        }
+        Long current = bodyHashes == null ? null : bodyHashes.getIfPresent(id);
+        if (current == null) {
+            final Content latest = getContentById(id);
+            if (latest == null || latest.getBody() == null || latest.getBody().getStorage() == null) {
+                return false;
+            }
+            current = bodyHashes == null ? null : bodyHashes.getIfPresent(id);
+            if (current == null) {
+                current = StorageDiff.canonicalHash(latest.getBody().getStorage().getValue());
+            }
+        }
+        return current == StorageDiff.canonicalHash(storage.getValue());
+    }
+
+    // records the canonical hash of the body of content fetched from, or accepted by, the server.
+    private void rememberBody(final Content content) {
+        if (bodyHashes == null || content == null || content.getId() == null) {
+            return;
+        }
+        if (content.getBody() == null || content.getBody().getStorage() == null) {
+            bodyHashes.invalidate(content.getId());
+        } else {
+            bodyHashes.put(content.getId(), StorageDiff.canonicalHash(content.getBody().getStorage().getValue()));
+        }
     }
 
     /**
@@ -92,8 +218,41 @@ public class ConfluenceClient {
         return confluenceAPI.getContentBySpaceKeyAndTitle(key, title);
     }
 
+    /**
+     * Search for content using the Confluence Query Language (CQL), fetching the results
+     * from the server one page at a time as the stream is consumed. For example:
+     * <pre>{@code
+     *     client.searchContent("space = DEV and type = page and lastmodified > now('-7d')",
+     *             "body.storage", "version")
+     *         .filter(...)
+     * }</pre>
+     * <p>Filtering on the server in this way is far cheaper than fetching whole spaces
+     * and filtering the content locally.
+     *
+     * @param cql    the CQL query.
+     * @param expand the properties of each result to expand, for example {@literal "body.storage"};
+     *               none are expanded if omitted.
+     * @return a lazily populated, sequential stream of the content matching {@code cql}.
+     * @see <a href="https://developer.atlassian.com/confdev/confluence-rest-api/advanced-searching-using-cql">
+     * Advanced Searching using CQL</a>
+     */
+    public Stream<Content> searchContent(final String cql, final String... expand) {
+        final String expansions = String.join(",", expand);
+        return streamPages(operation("confluence.searchContent", "confluence.cql", cql), start -> {
+            final ImmutableMap.Builder<String, String> params = ImmutableMap.<String, String>builder()
+                    .put("start", Integer.toString(start))
+                    .put("limit", Integer.toString(PAGE_SIZE));
+            if (!expansions.isEmpty()) {
+                params.put("expand", expansions);
+            }
+            return confluenceAPI.searchContent(cql, params.build()).getContents();
+        });
+    }
+
     /**
      * Used for converting the storage format of a piece of content.
+     * <p>Wiki markup produced by this library (see {@link LocalWikiConverter}) is converted
+     * to storage format locally; everything else is converted by the server.
      *
      * @param storage   the storage instance to convert.
      * @param convertTo the representation to convert to.
@@ -104,6 +263,13 @@ public class ConfluenceClient {
      */
     public Storage convertContent(final Storage storage,
                                   final Storage.Representation convertTo) {
+        if (convertTo == Storage.Representation.STORAGE
+                && Storage.Representation.WIKI.toString().equals(storage.getRepresentation())) {
+            final Optional<String> converted = LocalWikiConverter.toStorage(storage.getValue());
+            if (converted.isPresent()) {
+                return new Storage(converted.get(), convertTo.toString());
+            }
+        }
         return confluenceAPI.postContentConversion(storage, convertTo.toString());
     }
 
@@ -127,10 +293,130 @@ public class ConfluenceClient {
      * @return the result {@code Content} instance with the {@code id} field updated.
      */
     public Content postContent(final Content content) {
-        System.out.println(content.toString());
+        logger.fine(content::toString);
         return confluenceAPI.postContent(content);
     }
 
+    /**
+     * Creates a new page or blog post on confluence, reading the storage format
+     * markup of its body from {@code body} as the request is sent. The body is never
+     * held in memory as a whole, which makes this suitable for very large pages.
+     *
+     * @param content the content to post to confluence; its {@code body} is ignored.
+     * @param body    the source of the storage format markup of the body.
+     * @return the result {@code Content} instance with the {@code id} field updated.
+     */
+    public Content postContent(final Content content, final Reader body) {
+        return confluenceAPI.postContent(StreamingContentBody.fromReader(GSON, content, body));
+    }
+
+    /**
+     * Creates a new page or blog post on confluence, whose body is written by
+     * {@code generator} as the request is sent. For example:
+     * <pre>{@code
+     *     client.postContent(page, writer -> {
+     *         writer.append(TableOfContentsMacro.builder().build());
+     *         for (Section section : report) {
+     *             writer.raw(section.toHtml());
+     *         }
+     *     });
+     * }</pre>
+     *
+     * @param content   the content to post to confluence; its {@code body} is ignored.
+     * @param generator writes the storage format markup of the body; it may be invoked
+     *                  more than once if the request has to be retried.
+     * @return the result {@code Content} instance with the {@code id} field updated.
+     */
+    public Content postContent(final Content content, final Consumer<StorageWriter> generator) {
+        return confluenceAPI.postContent(StreamingContentBody.fromGenerator(GSON, content, generator));
+    }
+
+    /**
+     * Updates an existing page or blog post, creating a new version of it.
+     * <p>The version created is one after that given by {@code content.getVersion()}; if
+     * {@code content} has no version, the latest version is fetched first. Should another
+     * version have been created in the meantime, the server rejects the update with
+     * {@literal 409 Conflict}, in which case the latest version number is fetched again and
+     * the update retried, up to {@value #MAX_CONFLICT_RETRIES} times.
+     * <p>{@code content} itself is not modified.
+     *
+     * @param content the new state of the content; its {@code id}, {@code type} and
+     *                {@code title} are required by confluence.
+     * @return the updated {@code Content}, with its new version.
+     * @throws IllegalArgumentException if {@code content} has no {@code id}.
+     * @throws RetrofitError            if the update fails, or still conflicts after retrying.
+     */
+    public Content updateContent(final Content content) {
+        if (content.getId() == null) {
+            throw new IllegalArgumentException("content to update must have an id");
+        }
+        return operation("confluence.updateContent", "confluence.content.id", content.getId())
+                .call(() -> updateWithRetries(content));
+    }
+
+    // updates content, retrying while its version conflicts.
+    private Content updateWithRetries(final Content content) {
+        final Integer given = content.getVersion() == null ? null : content.getVersion().getNumber();
+        int current = given == null || given == 0
+                ? fetchVersionNumber(content.getId())
+                : given;
+        for (int attempt = 0; ; attempt++) {
+            final Content update = copyWithVersion(content, current + 1);
+            try {
+                final Content result = confluenceAPI.updateContent(content.getId(), update);
+                rememberBody(update);
+                return result;
+            } catch (RetrofitError e) {
+                if (!isConflict(e) || attempt == MAX_CONFLICT_RETRIES) {
+                    throw e;
+                }
+                logger.fine(() -> "Version conflict updating " + content.getId() + ", retrying");
+                Span.current().setAttribute("confluence.retries", attempt + 1);
+                current = fetchVersionNumber(content.getId());
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #updateContent(Content)}, unless the body of {@code content} is
+     * {@link #isBodyUnchanged(String, Storage) unchanged}, in which case no update is made.
+     *
+     * @param content the new state of the content.
+     * @return the updated {@code Content}, or {@link Optional#empty()} if the update was skipped.
+     */
+    public Optional<Content> updateContentIfChanged(final Content content) {
+        if (content.getBody() != null && isBodyUnchanged(content.getId(), content.getBody().getStorage())) {
+            return Optional.empty();
+        }
+        return Optional.of(updateContent(content));
+    }
+
+    // fetches the number of the latest version of the content with the given id.
+    private int fetchVersionNumber(final String id) {
+        final Content latest = confluenceAPI.getContentById(id, "version");
+        if (latest.getVersion() == null || latest.getVersion().getNumber() == null) {
+            throw new IllegalStateException("confluence returned no version for content " + id);
+        }
+        return latest.getVersion().getNumber();
+    }
+
+    private static boolean isConflict(final RetrofitError e) {
+        return e.getResponse() != null && e.getResponse().getStatus() == 409;
+    }
+
+    // a copy of content, with the given version number, that can be sent as an update.
+    private static Content copyWithVersion(final Content content, final int number) {
+        final Content copy = new Content(content.getId(), content.getType(), content.getSpace(),
+                content.getTitle(), content.getBody());
+        copy.setAncestors(content.getAncestors());
+        final Version version = new Version(number);
+        if (content.getVersion() != null) {
+            version.setMessage(content.getVersion().getMessage());
+        }
+        copy.setVersion(version);
+        return copy;
+    }
+
     /**
      * DELETE Content
      * <p>Trashes or purges a piece of Content, based on its {@literal ContentType} and
@@ -144,13 +430,37 @@ public class ConfluenceClient {
     }
 
     /**
-     * Obtain a list of available spaces.
+     * Obtain a list of all available spaces, fetching as many pages of results as needed.
      *
      * @return a list of spaces available on confluence.
+     * @see SpaceDirectory
      */
     public List<Space> getSpaces() {
-        Space[] results = confluenceAPI.getSpaces().getSpaces();
-        return Arrays.stream(results).collect(Collectors.toList());
+        return streamSpaces().collect(Collectors.toList());
+    }
+
+    /**
+     * Stream all available spaces, fetching them from the server one page of results at a
+     * time as the stream is consumed.
+     *
+     * @return a lazily populated, sequential stream of the spaces.
+     */
+    public Stream<Space> streamSpaces() {
+        return streamPages(operation("confluence.streamSpaces", null, null),
+                start -> getSpaces(start, PAGE_SIZE).getSpaces());
+    }
+
+    /**
+     * Obtain a single page of the available spaces.
+     *
+     * @param start the index of the first space to return.
+     * @param limit the maximum number of spaces to return; the server may apply a lower limit.
+     * @return the page of spaces, with the limit applied by the server.
+     */
+    public SpaceResultList getSpaces(final int start, final int limit) {
+        return confluenceAPI.getSpaces(ImmutableMap.of(
+                "start", Integer.toString(start),
+                "limit", Integer.toString(limit)));
     }
 
     /**
@@ -168,6 +478,44 @@ public class ConfluenceClient {
         return Arrays.stream(results).collect(Collectors.toList());
     }
 
+    /**
+     * Stream all pages of a confluence space, with their bodies, fetching them from the
+     * server one page of results at a time as the stream is consumed.
+     * <p>Unlike {@link #getAllSpaceContent(String)}, this is not limited to the first
+     * page of results, and holds only a single page of results in memory.
+     *
+     * @param spaceKey the key that identifies the target Space.
+     * @return a lazily populated, sequential stream of the content in the Space.
+     */
+    public Stream<Content> streamSpaceContent(final String spaceKey) {
+        return streamPages(operation("confluence.streamSpaceContent", "confluence.space.key", spaceKey), start -> confluenceAPI.getAllSpaceContent(spaceKey,
+                ImmutableMap.of(
+                        "expand", "ancestors,body.storage,space,version",
+                        "start", Integer.toString(start),
+                        "limit", Integer.toString(PAGE_SIZE)))
+                .getContents());
+    }
+
+    /**
+     * Publish all pages of a confluence space, with their bodies, fetching each page of
+     * results from the server only as subscribers request more content.
+     * <p>This is the backpressure-aware form of {@link #streamSpaceContent(String)}: a slow
+     * subscriber slows the fetching, rather than results being buffered for it, and
+     * cancelling the subscription stops the fetching.
+     *
+     * @param spaceKey the key that identifies the target Space.
+     * @return a publisher of the content in the Space, which fetches the content again
+     * for each subscriber.
+     */
+    public Publisher<Content> publishSpaceContent(final String spaceKey) {
+        return new PagePublisher<>(operation("confluence.publishSpaceContent", "confluence.space.key", spaceKey), start -> confluenceAPI.getAllSpaceContent(spaceKey,
+                ImmutableMap.of(
+                        "expand", "ancestors,body.storage,space,version",
+                        "start", Integer.toString(start),
+                        "limit", Integer.toString(PAGE_SIZE)))
+                .getContents());
+    }
+
     /**
      * Creates a new Confluence {@code Space} using {@code key} and
      * {@code name} of the given {@code space}.
@@ -207,6 +555,25 @@ public class ConfluenceClient {
         return Arrays.stream(resultList).collect(Collectors.toList());
     }
 
+    /**
+     * Publish the root content of a space, fetching each page of results from the server
+     * only as subscribers request more content.
+     *
+     * @param spaceKey    the space key of the Space.
+     * @param contentType the type of content to return.
+     * @return a publisher of the root content, which fetches the content again for each
+     * subscriber.
+     * @see #publishSpaceContent(String)
+     */
+    public Publisher<Content> publishRootContentBySpaceKey(final String spaceKey, final Type contentType) {
+        return new PagePublisher<>(operation("confluence.publishRootContent", "confluence.space.key", spaceKey),
+                start -> confluenceAPI.getRootContentBySpaceKey(spaceKey, contentType.toString(),
+                ImmutableMap.of(
+                        "start", Integer.toString(start),
+                        "limit", Integer.toString(PAGE_SIZE)))
+                .getContents());
+    }
+
     /**
      * Fetch the children for a given {@code Content} identified
      * by the {@code parentId}.
@@ -226,6 +593,62 @@ public class ConfluenceClient {
         return Arrays.stream(resultList).collect(Collectors.toList());
     }
 
+    /**
+     * Stream the children of a given {@code Content}, fetching them from the server one
+     * page of results at a time as the stream is consumed. No properties are expanded, which
+     * makes this suitable for walking large trees of content.
+     *
+     * @param parentId    the {@code id} of the parent {@code Content}.
+     * @param contentType the {@code Type} of {@code Content}.
+     * @return a lazily populated, sequential stream of the children.
+     */
+    public Stream<Content> streamChildren(final String parentId, final Type contentType) {
+        return streamPages(operation("confluence.streamChildren", "confluence.content.id", parentId),
+                start -> confluenceAPI.getChildren(parentId, contentType.toString(),
+                ImmutableMap.of(
+                        "start", Integer.toString(start),
+                        "limit", Integer.toString(PAGE_SIZE)))
+                .getContents());
+    }
+
+    /**
+     * Publish the children of a given {@code Content}, with the same properties expanded as
+     * {@link #getChildren(String, Type)}, fetching each page of results from the server
+     * only as subscribers request more content.
+     *
+     * @param parentId    the {@code id} of the parent {@code Content}.
+     * @param contentType the {@code Type} of {@code Content}.
+     * @return a publisher of the children, which fetches the children again for each
+     * subscriber.
+     * @see #publishSpaceContent(String)
+     */
+    public Publisher<Content> publishChildren(final String parentId, final Type contentType) {
+        return new PagePublisher<>(operation("confluence.publishChildren", "confluence.content.id", parentId),
+                start -> confluenceAPI.getChildren(parentId, contentType.toString(),
+                ImmutableMap.of(
+                        "expand", "history,body.storage,version",
+                        "start", Integer.toString(start),
+                        "limit", Integer.toString(PAGE_SIZE)))
+                .getContents());
+    }
+
+    /**
+     * @param name      the name of the operation.
+     * @param attribute the name of an attribute identifying what is operated on, or {@code null}.
+     * @param value     the value of the attribute.
+     * @return an operation traced by this client's tracer.
+     */
+    Operation operation(final String name, final String attribute, final String value) {
+        return new Operation(tracer, name, attribute, value);
+    }
+
+    // streams the results of a paginated call, traced as a single operation which ends
+    // when the results are exhausted, or the stream is closed.
+    private static <T> Stream<T> streamPages(final Operation operation, final IntFunction<T[]> fetch) {
+        final Operation.Pages<T> pages = operation.pages(fetch);
+        return PageIterator.stream(pages).onClose(pages::end);
+    }
+
     /**
      * Factory object for chaining the construction of a {@code ConfluenceClient}.
      *
@@ -243,6 +666,10 @@ public class ConfluenceClient {
          * This is the reference to the concrete REST API Client generated by Retrofit.
          */
         private ConfluenceAPI confluenceAPI;
+        /**
+         * The transport built for the client being built, closed with it.
+         */
+        private Transport resolvedTransport;
         /**
          * The username forms the first part of the credential used to authenticate requests.
          */
@@ -251,17 +678,47 @@ public class ConfluenceClient {
          * The password forms the second part of the credential used to authenticate requests.
          */
         private String password;
+        /**
+         * If {@link #authProvider(AuthProvider) set}, authenticates requests in place of the
+         * username and password.
+         */
+        private AuthProvider authProvider;
+        /**
+         * Whether the session cookies set by the server are sent back with later requests.
+         */
+        private boolean reuseSessions = true;
+        /**
+         * Whether the hash of each body fetched is remembered.
+         */
+        private boolean rememberBodies;
         /**
          * By default, {@link #BASE_URL} will be used as the url of the confluence instance; when
          * this is set, requests will be made to this base URL instead.
          */
         private String alternativeBaseURL;
+        /**
+         * If {@link #baseURLs(String...) set}, the base URLs of the nodes of a cluster, of which
+         * the first is also the {@link #alternativeBaseURL}.
+         */
+        private List<String> baseURLs;
 
         /**
-         * By default the standard Retrofit {@code Client} will be used. However, if this is
+         * By default an {@link OkHttp3Transport} will be used. However, if this is
          * {@link #supplyClient(Client) set} then the provided {@code Client} will be used.
          */
         private Client client;
+        /**
+         * If {@link #transport(Transport) set}, the transport used in place of the default.
+         */
+        private Transport transport;
+        /**
+         * If {@link #maxRequestsPerHost(int) set}, the most requests in flight to a host.
+         */
+        private int maxRequestsPerHost;
+        /**
+         * Traces operations and the HTTP calls they make; nothing by default.
+         */
+        private Tracer tracer = Tracer.NOOP;
 
         // prevent direct instantiation by external classes.
         private Builder() {
@@ -289,6 +746,50 @@ public class ConfluenceClient {
             return this;
         }
 
+        /**
+         * Sets how requests are authenticated, in place of the {@link #username(String)
+         * username} and {@link #password(String) password}; for example with a personal
+         * access token, or OAuth 2.0 tokens that expire.
+         *
+         * @param authProvider supplies the credentials of each request.
+         * @return {@code this}.
+         * @see com.softwareleaf.confluence.rest.auth.BearerTokenProvider
+         * @see com.softwareleaf.confluence.rest.auth.RefreshingTokenProvider
+         */
+        public Builder authProvider(final AuthProvider authProvider) {
+            this.authProvider = authProvider;
+            return this;
+        }
+
+        /**
+         * By default the session the server starts on the first request to a host is reused
+         * by later requests, which the server then need not authenticate afresh. Sessions
+         * should only be disabled for servers that reject them.
+         *
+         * @param reuseSessions whether to send back the cookies set by the server.
+         * @return {@code this}.
+         * @see AuthenticatingTransport
+         */
+        public Builder reuseSessions(final boolean reuseSessions) {
+            this.reuseSessions = reuseSessions;
+            return this;
+        }
+
+        /**
+         * By default, {@link ConfluenceClient#isBodyUnchanged(String, Storage)} fetches the
+         * current body of the content for each comparison. When enabled, the canonical hash
+         * of the body of content fetched, or updated, by the client is remembered, and used
+         * instead; at the cost of hashing every body fetched, whether it is compared or not.
+         *
+         * @param rememberBodies whether to remember the hash of each body fetched.
+         * @return {@code this}.
+         * @see StorageDiff#canonicalHash(String)
+         */
+        public Builder rememberBodies(final boolean rememberBodies) {
+            this.rememberBodies = rememberBodies;
+            return this;
+        }
+
         /**
          * By default, {@link #BASE_URL BaseURL} will be used as the url of the confluence instance; when
          * this is set, requests will be made to this base URL instead.
@@ -298,6 +799,26 @@ public class ConfluenceClient {
          */
         public Builder baseURL(final String url) {
             this.alternativeBaseURL = url;
+            this.baseURLs = null;
+            return this;
+        }
+
+        /**
+         * Spreads requests across the nodes of a cluster, each reached at its own base URL,
+         * in place of a single {@link #baseURL(String) base URL}. Each request goes to the
+         * node with the fewest requests in flight; failing nodes are ejected for a while,
+         * and reads that fail are retried on another node.
+         *
+         * @param urls the base URL of each node.
+         * @return {@code this}.
+         * @see LoadBalancingTransport
+         */
+        public Builder baseURLs(final String... urls) {
+            if (urls.length == 0) {
+                throw new IllegalArgumentException("At least one base URL is required.");
+            }
+            this.alternativeBaseURL = urls[0];
+            this.baseURLs = Arrays.asList(urls.clone());
             return this;
         }
 
@@ -326,6 +847,54 @@ public class ConfluenceClient {
             return this;
         }
 
+        /**
+         * Sets the {@link Transport} that executes requests, in place of the default
+         * {@link OkHttp3Transport}. This takes precedence over a {@link #supplyClient(Client)
+         * supplied client}. The transport is not closed by {@link ConfluenceClient#close()}.
+         *
+         * @param transport the {@code Transport} to use.
+         * @return {@code this}.
+         */
+        public Builder transport(final Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Bounds the number of requests in flight to each host, whichever transport is used;
+         * further requests wait in a queue. The wait parks the calling thread without holding
+         * a monitor; and the default transport then {@linkplain
+         * OkHttp3Transport.Builder#bufferResponses(boolean) buffers responses}, so that the
+         * caller does no I/O of its own. So the client can be called from any number of
+         * virtual threads without pinning their carriers.
+         *
+         * @param maxRequestsPerHost the most requests in flight to a single host.
+         * @return {@code this}.
+         * @see HostLimitingTransport
+         */
+        public Builder maxRequestsPerHost(final int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be at least 1.");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Traces each HTTP call, and each operation made of several calls, such as streaming
+         * the content of a space, or updating content with retries; the calls made during an
+         * operation, or while a span of the caller's is {@linkplain Span#makeCurrent()
+         * current}, are traced as its children.
+         *
+         * @param tracer the tracer to start spans with.
+         * @return {@code this}.
+         * @see Tracer
+         */
+        public Builder tracer(final Tracer tracer) {
+            this.tracer = Objects.requireNonNull(tracer);
+            return this;
+        }
+
         /**
          * Build and return a configured ConfluenceClient instance.
          *
@@ -346,45 +915,61 @@ public class ConfluenceClient {
         private RestAdapter configureRestAdapter() {
             // determine if we are using the production confluence or not.
             final String URL = alternativeBaseURL == null ? BASE_URL : alternativeBaseURL;
-            // determine the user credentials to use.
-            final String username = this.username == null ? DEFAULT_USERNAME : this.username;
-            final String password = this.password == null ? DEFAULT_PASSWORD : this.password;
-            /*
-             * The Confluence REST API requires HTTP Basic authentication using a
-             * username and password pair, for a given Confluence user.
-             * We therefore need to first encode the credentials using a Base64 encoder
-             * and set up an interceptor that adds the requisite HTTP headers to each request.
-             */
-            final String credentials = username + ":" + password;
-            // encode in base64.
-            final String encodedCredentials = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes());
-
-            // build the default RestAdapter
+            // build the default RestAdapter; credentials are added by the transport.
             final RestAdapter.Builder restAdapterBuilder = new RestAdapter.Builder()
                     .setEndpoint(URL)
-                    .setConverter(
-                            new GsonConverter(
-                                    new GsonBuilder()
-                                            // handles confluence Date format
-                                            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
-                                                    // ensures body.storage HTML is not escaped
-                                            .disableHtmlEscaping()
-                                            .create()))
-                    .setRequestInterceptor(
-                            request -> {
-                                request.addHeader("Accept", "application/json");
-                                request.addHeader("Authorization", encodedCredentials);
-                            }
-                    );
-
-            // handle choice of client
-            if (client != null) {
-                restAdapterBuilder.setClient(client);
-            }
+                    .setConverter(new GsonConverter(GSON))
+                    .setRequestInterceptor(request -> request.addHeader("Accept", "application/json"));
+
+            // every request goes through a transport; a supplied client is adapted to one.
+            resolvedTransport = resolveTransport();
+            restAdapterBuilder.setClient(new TransportClient(resolvedTransport));
 
             return restAdapterBuilder.build();
         }
 
+        // the configured transport, or else the supplied client, or else the default; limited
+        // per host if required, authenticated, and balanced across the nodes of a cluster if
+        // given. Sessions and limits are kept per node, so both sit beneath the balancer; each
+        // call is traced once, above it all.
+        private Transport resolveTransport() {
+            final Transport resolved;
+            // only an OkHttp3Transport is known not to block its caller.
+            final boolean blocking;
+            if (transport != null) {
+                // a transport the caller owns is not closed with the client.
+                resolved = transport::execute;
+                blocking = !(transport instanceof OkHttp3Transport);
+            } else if (client != null) {
+                resolved = new ClientTransport(client);
+                blocking = true;
+            } else {
+                // bodies are read on the dispatcher when the client is to be called from
+                // virtual threads, as reading one over HTTP/2 would pin the caller.
+                resolved = OkHttp3Transport.builder().bufferResponses(maxRequestsPerHost > 0).build();
+                blocking = false;
+            }
+            final Transport limited = maxRequestsPerHost > 0
+                    ? new HostLimitingTransport(resolved, maxRequestsPerHost, blocking) : resolved;
+            final Transport authenticated = new AuthenticatingTransport(limited, resolveAuthProvider(), reuseSessions);
+            final Transport balanced = baseURLs == null || baseURLs.size() < 2
+                    ? authenticated : LoadBalancingTransport.builder(authenticated).baseURLs(baseURLs).build();
+            return tracer == Tracer.NOOP ? balanced : new TracingTransport(balanced, tracer);
+        }
+
+        /*
+         * The Confluence REST API accepts HTTP Basic authentication using a username and
+         * password pair, for a given Confluence user; this is used unless another provider
+         * is set.
+         */
+        private AuthProvider resolveAuthProvider() {
+            if (authProvider != null) {
+                return authProvider;
+            }
+            return new BasicAuthProvider(username == null ? DEFAULT_USERNAME : username,
+                    password == null ? DEFAULT_PASSWORD : password);
+        }
+
     }
 
 }
@@ -0,0 +1,317 @@
+package com.softwareleaf.confluence.rest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.softwareleaf.confluence.rest.model.Content;
+import com.softwareleaf.confluence.rest.model.Type;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Applies operations to many pieces of content concurrently, for example to republish
+ * every page generated by a report, or to delete a tree of pages.
+ * <p>A failure for one piece of content does not stop the others; every outcome is
+ * recorded in the returned {@link BatchResult}.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (ContentBatch batch = ContentBatch.builder(client)
+ *             .concurrency(8)
+ *             .skipUnchanged(true)
+ *             .build()) {
+ *         BatchResult result = batch.update(pages);
+ *         result.getFailures().forEach((id, e) -> log.warning(id + ": " + e));
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see ConfluenceClient#updateContent(Content)
+ */
+public class ContentBatch implements AutoCloseable {
+    /**
+     * The default number of requests that may be in flight at once.
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /**
+     * The client used to perform the requests.
+     */
+    private final ConfluenceClient client;
+    /**
+     * Executes the requests.
+     */
+    private final ExecutorService executor;
+    /**
+     * {@code true} if updates whose body is unchanged should be skipped.
+     */
+    private final boolean skipUnchanged;
+    /**
+     * Notified as each piece of content is processed.
+     */
+    private final ProgressListener listener;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private ContentBatch(final Builder builder) {
+        this.client = builder.client;
+        this.skipUnchanged = builder.skipUnchanged;
+        this.listener = builder.listener;
+        this.executor = Executors.newFixedThreadPool(builder.concurrency,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("confluence-batch-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * Updates every piece of content in {@code contents}, blocking until all updates
+     * have completed or failed.
+     *
+     * @param contents the new state of each piece of content; each must have an {@code id}.
+     * @return the outcome of each update.
+     * @see ConfluenceClient#updateContent(Content)
+     */
+    public BatchResult update(final Collection<Content> contents) {
+        final BatchResult result = new BatchResult();
+        final Progress progress = new Progress(contents.size());
+        runAll(contents, Content::getId, content -> {
+            if (skipUnchanged) {
+                return client.updateContentIfChanged(content).isPresent();
+            }
+            client.updateContent(content);
+            return true;
+        }, result, progress);
+        return result;
+    }
+
+    /**
+     * Deletes every piece of content in {@code ids}, blocking until all deletes have
+     * completed or failed.
+     *
+     * @param ids the ids of the content to delete.
+     * @return the outcome of each delete.
+     * @see ConfluenceClient#deleteContentById(String)
+     */
+    public BatchResult delete(final Collection<String> ids) {
+        final BatchResult result = new BatchResult();
+        final Progress progress = new Progress(ids.size());
+        runAll(ids, id -> id, id -> {
+            client.deleteContentById(id);
+            return true;
+        }, result, progress);
+        return result;
+    }
+
+    /**
+     * Deletes the page with the given id and all of its descendants.
+     * <p>The tree is first walked a level at a time, fetching the children of every page in
+     * a level concurrently. The pages are then deleted from the deepest level up, so that
+     * children are always deleted before their parents. If a page cannot be deleted, its
+     * ancestors are {@link BatchResult#getSkipped() skipped} rather than deleted, since
+     * confluence would otherwise move the remaining page to the top of the space.
+     *
+     * @param rootId the id of the page at the root of the tree.
+     * @return the outcome of each delete.
+     * @throws RuntimeException if the tree cannot be walked; nothing is deleted in that case.
+     */
+    public BatchResult deleteTree(final String rootId) {
+        final Map<String, String> parents = new ConcurrentHashMap<>();
+        final List<List<String>> levels = new ArrayList<>();
+        List<String> level = Collections.singletonList(rootId);
+        int total = 0;
+        while (!level.isEmpty()) {
+            levels.add(level);
+            total += level.size();
+            level = childrenOf(level, parents);
+        }
+
+        final BatchResult result = new BatchResult();
+        final Progress progress = new Progress(total);
+        // the pages that must not be deleted, because a descendant could not be.
+        final Set<String> retained = ConcurrentHashMap.newKeySet();
+        for (int depth = levels.size() - 1; depth >= 0; depth--) {
+            runAll(levels.get(depth), id -> id, id -> {
+                if (retained.contains(id)) {
+                    retain(parents.get(id), retained);
+                    return false;
+                }
+                try {
+                    client.deleteContentById(id);
+                    return true;
+                } catch (RuntimeException e) {
+                    retain(parents.get(id), retained);
+                    throw e;
+                }
+            }, result, progress);
+        }
+        return result;
+    }
+
+    // fetches the ids of the child pages of every page in level, recording their parents.
+    private List<String> childrenOf(final List<String> level, final Map<String, String> parents) {
+        final List<CompletableFuture<List<String>>> futures = new ArrayList<>(level.size());
+        for (String parentId : level) {
+            futures.add(CompletableFuture.supplyAsync(() -> client.streamChildren(parentId, Type.PAGE)
+                    .map(Content::getId)
+                    .peek(id -> parents.put(id, parentId))
+                    .collect(Collectors.toList()), executor));
+        }
+        final List<String> children = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<String>> future : futures) {
+                children.addAll(future.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        return children;
+    }
+
+    private static void retain(final String id, final Set<String> retained) {
+        if (id != null) {
+            retained.add(id);
+        }
+    }
+
+    /**
+     * Applies {@code operation} to every item concurrently, recording each outcome in
+     * {@code result}, and blocks until all have completed.
+     *
+     * @param operation returns {@code true} if the item was processed, or {@code false}
+     *                  if it was skipped.
+     */
+    private <T> void runAll(final Collection<T> items, final Function<T, String> idOf,
+                            final Predicate<T> operation, final BatchResult result, final Progress progress) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                final String id = idOf.apply(item);
+                RuntimeException failure = null;
+                try {
+                    if (operation.test(item)) {
+                        result.succeeded(id);
+                    } else {
+                        result.skipped(id);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                    result.failed(id, e);
+                }
+                progress.completed(id, failure);
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Counts the items of an operation processed so far, and reports them to the listener.
+     */
+    private final class Progress {
+        private final int total;
+        private final AtomicInteger completed = new AtomicInteger();
+
+        Progress(final int total) {
+            this.total = total;
+        }
+
+        void completed(final String id, final RuntimeException failure) {
+            listener.onProgress(completed.incrementAndGet(), total, id, failure);
+        }
+    }
+
+    /**
+     * Stops accepting new operations. Operations already submitted are allowed to complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param client the {@code ConfluenceClient} used to perform the requests.
+     * @return a {@code Builder} instance for chain-building a {@code ContentBatch}.
+     * @throws NullPointerException if {@code client} is null.
+     */
+    public static Builder builder(final ConfluenceClient client) {
+        return new Builder(Objects.requireNonNull(client));
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code ContentBatch}.
+     */
+    public static class Builder {
+        private final ConfluenceClient client;
+        private int concurrency = DEFAULT_CONCURRENCY;
+        private boolean skipUnchanged;
+        private ProgressListener listener = ProgressListener.NONE;
+
+        // prevent direct instantiation by external classes.
+        private Builder(final ConfluenceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * Sets the number of requests that may be in flight at once.
+         *
+         * @param concurrency a value greater than {@code 0}.
+         * @return {@code this}.
+         */
+        public Builder concurrency(final int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1.");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * When set, content whose body is structurally the same as its latest version is
+         * not updated, and is reported as {@link BatchResult#getSkipped() skipped}.
+         *
+         * @param skipUnchanged {@code true} to skip unchanged content.
+         * @return {@code this}.
+         * @see ConfluenceClient#isBodyUnchanged(String, com.softwareleaf.confluence.rest.model.Storage)
+         */
+        public Builder skipUnchanged(final boolean skipUnchanged) {
+            this.skipUnchanged = skipUnchanged;
+            return this;
+        }
+
+        /**
+         * Sets the listener notified as each piece of content is processed.
+         *
+         * @param listener a thread safe listener.
+         * @return {@code this}.
+         */
+        public Builder progressListener(final ProgressListener listener) {
+            this.listener = Objects.requireNonNull(listener);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code ContentBatch}.
+         */
+        public ContentBatch build() {
+            return new ContentBatch(this);
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+package com.softwareleaf.confluence.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.softwareleaf.confluence.rest.model.Storage;
+import com.softwareleaf.confluence.rest.trace.Scope;
+import com.softwareleaf.confluence.rest.trace.Span;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Converts batches of {@code Storage} instances between representations, for example
+ * from {@literal "wiki"} to {@literal "storage"}.
+ * <p>Conversions are issued concurrently against the
+ * {@literal /rest/api/contentbody/convert/{to}} endpoint, and their results are kept in a
+ * bounded, least recently used cache keyed by the source representation, the target
+ * representation and a hash of the source markup. Identical markup is therefore only
+ * ever sent to the server once, even when it is requested by several threads at the
+ * same time.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (ConversionService conversions = ConversionService.builder(client)
+ *             .concurrency(8)
+ *             .cacheSize(4096)
+ *             .build()) {
+ *         List<Storage> converted = conversions.convertAll(wikiBodies, Storage.Representation.STORAGE);
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see ConfluenceClient#convertContent(Storage, Storage.Representation)
+ */
+public class ConversionService implements AutoCloseable {
+    /**
+     * The default number of conversion requests that may be in flight at once.
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+    /**
+     * The default maximum number of conversion results to cache.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * The client used to perform conversions that are not cached.
+     */
+    private final ConfluenceClient client;
+    /**
+     * Executes the conversion requests.
+     */
+    private final ExecutorService executor;
+    /**
+     * The completed conversions.
+     */
+    private final Cache<ConversionKey, Storage> cache;
+    /**
+     * Conversions that have been requested but are not yet complete; used to
+     * ensure that concurrent requests for the same markup share a single request.
+     */
+    private final ConcurrentMap<ConversionKey, CompletableFuture<Storage>> inFlight;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private ConversionService(final Builder builder) {
+        this.client = builder.client;
+        this.executor = Executors.newFixedThreadPool(builder.concurrency,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("confluence-conversion-%d")
+                        .setDaemon(true)
+                        .build());
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(builder.cacheSize)
+                .build();
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Converts a single {@code Storage}, blocking until the result is available.
+     *
+     * @param storage   the storage instance to convert.
+     * @param convertTo the representation to convert to.
+     * @return an instance of {@code Storage} that contains the result of the conversion.
+     */
+    public Storage convert(final Storage storage, final Storage.Representation convertTo) {
+        try {
+            return convertAsync(storage, convertTo).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Converts a single {@code Storage} without blocking.
+     *
+     * @param storage   the storage instance to convert.
+     * @param convertTo the representation to convert to.
+     * @return a future that completes with the result of the conversion.
+     * @throws NullPointerException if either argument is null.
+     */
+    @SuppressWarnings("try")
+    public CompletableFuture<Storage> convertAsync(final Storage storage,
+                                                   final Storage.Representation convertTo) {
+        Objects.requireNonNull(storage);
+        Objects.requireNonNull(convertTo);
+        final ConversionKey key = new ConversionKey(storage, convertTo);
+        final Storage cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(copyOf(cached));
+        }
+        final CompletableFuture<Storage> pending = new CompletableFuture<>();
+        final CompletableFuture<Storage> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing.thenApply(ConversionService::copyOf);
+        }
+        // the conversion is traced as a child of the caller's span.
+        final Span parent = Span.current();
+        try {
+            executor.execute(() -> {
+                try (Scope ignored = parent.makeCurrent()) {
+                    final Storage result = client.convertContent(storage, convertTo);
+                    cache.put(key, result);
+                    pending.complete(result);
+                } catch (Throwable e) {
+                    pending.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, pending);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // otherwise the key would stay in flight, and later callers would wait forever.
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(e);
+        }
+        return pending.thenApply(ConversionService::copyOf);
+    }
+
+    /**
+     * Converts every {@code Storage} in {@code storages}. Requests are issued concurrently,
+     * and the results are returned in the same order as the given list.
+     *
+     * @param storages  the storage instances to convert.
+     * @param convertTo the representation to convert to.
+     * @return a list of converted {@code Storage} instances, one per element of {@code storages}.
+     */
+    public List<Storage> convertAll(final List<Storage> storages,
+                                    final Storage.Representation convertTo) {
+        return client.operation("confluence.convertAll", "confluence.representation", convertTo.toString())
+                .call(() -> {
+                    Span.current().setAttribute("confluence.conversions", storages.size());
+                    return convertEach(storages, convertTo);
+                });
+    }
+
+    private List<Storage> convertEach(final List<Storage> storages, final Storage.Representation convertTo) {
+        final List<CompletableFuture<Storage>> futures = new ArrayList<>(storages.size());
+        for (Storage storage : storages) {
+            futures.add(convertAsync(storage, convertTo));
+        }
+        final List<Storage> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<Storage> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of conversion results currently cached.
+     */
+    public long cachedConversions() {
+        return cache.size();
+    }
+
+    /**
+     * Discards all cached conversion results.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Stops accepting new conversions. Conversions already submitted are allowed to complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * {@code Storage} instances are mutable, so each caller receives its own copy of a cached result.
+     */
+    private static Storage copyOf(final Storage storage) {
+        return new Storage(storage.getValue(), storage.getRepresentation());
+    }
+
+    /**
+     * Rethrows the cause of a failed conversion, as thrown by the {@code ConfluenceClient}.
+     */
+    private static RuntimeException unwrap(final CompletionException e) {
+        return e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param client the {@code ConfluenceClient} used to perform conversions.
+     * @return a {@code Builder} instance for chain-building a {@code ConversionService}.
+     * @throws NullPointerException if {@code client} is null.
+     */
+    public static Builder builder(final ConfluenceClient client) {
+        return new Builder(Objects.requireNonNull(client));
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code ConversionService}.
+     */
+    public static class Builder {
+        private final ConfluenceClient client;
+        private int concurrency = DEFAULT_CONCURRENCY;
+        private long cacheSize = DEFAULT_CACHE_SIZE;
+
+        // prevent direct instantiation by external classes.
+        private Builder(final ConfluenceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * Sets the number of conversion requests that may be in flight at once.
+         *
+         * @param concurrency a value greater than {@code 0}.
+         * @return {@code this}.
+         */
+        public Builder concurrency(final int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1.");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of conversion results to keep; the least recently
+         * used results are evicted first.
+         *
+         * @param cacheSize a value greater than or equal to {@code 0}.
+         * @return {@code this}.
+         */
+        public Builder cacheSize(final long cacheSize) {
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("cacheSize cannot be negative.");
+            }
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code ConversionService}.
+         */
+        public ConversionService build() {
+            return new ConversionService(this);
+        }
+    }
+
+    /**
+     * Identifies a conversion by its source representation, target representation and
+     * a 128 bit hash of the source markup, so that large bodies are not retained by the
+     * cache keys.
+     */
+    private static final class ConversionKey {
+        private final String from;
+        private final Storage.Representation to;
+        private final HashCode sourceHash;
+
+        ConversionKey(final Storage storage, final Storage.Representation to) {
+            this.from = storage.getRepresentation();
+            this.to = to;
+            this.sourceHash = Hashing.murmur3_128().hashString(
+                    storage.getValue() == null ? "" : storage.getValue(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ConversionKey that = (ConversionKey) o;
+            return Objects.equals(from, that.from) &&
+                    to == that.to &&
+                    sourceHash.equals(that.sourceHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to, sourceHash);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.softwareleaf.confluence.rest;
+
+import com.softwareleaf.confluence.rest.trace.Scope;
+import com.softwareleaf.confluence.rest.trace.Span;
+import com.softwareleaf.confluence.rest.trace.Tracer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * A logical operation of the client, made of one or more HTTP calls, which is traced as a
+ * span of its own; the spans of the calls are its children.
+ *
+ * @author Jonathon Hope
+ * @see Tracer
+ */
+final class Operation {
+
+    private final Tracer tracer;
+    private final String name;
+    private final String attribute;
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param tracer    the tracer to start spans with.
+     * @param name      the name of the operation.
+     * @param attribute the name of an attribute identifying what is operated on, such as
+     *                  {@literal confluence.space.key}; or {@code null}.
+     * @param value     the value of the attribute.
+     */
+    Operation(final Tracer tracer, final String name, final String attribute, final String value) {
+        this.tracer = tracer;
+        this.name = name;
+        this.attribute = attribute;
+        this.value = value;
+    }
+
+    /**
+     * @return a new span of this operation, as a child of the current span.
+     */
+    Span start() {
+        final Span span = tracer.startSpan(name, Span.Kind.INTERNAL, Span.current());
+        if (attribute != null && value != null) {
+            span.setAttribute(attribute, value);
+        }
+        return span;
+    }
+
+    /**
+     * Performs the operation within a span.
+     *
+     * @param operation the operation.
+     * @param <T>       the type of the result.
+     * @return the result of the operation.
+     */
+    @SuppressWarnings("try")
+    <T> T call(final Supplier<T> operation) {
+        final Span span = start();
+        try (Scope ignored = span.makeCurrent()) {
+            return operation.get();
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Traces a traversal of a paginated API call as one span, which starts with the fetch
+     * of the first page, as a child of the span current now.
+     *
+     * @param fetch fetches the page of results beginning at the given start index.
+     * @param <T>   the type of the results.
+     * @return the traced fetch.
+     */
+    <T> Pages<T> pages(final IntFunction<T[]> fetch) {
+        return new Pages<>(fetch, Span.current());
+    }
+
+    /**
+     * A traced traversal of a paginated API call. The span ends when a fetch returns no
+     * results or fails, or when the traversal is {@linkplain #end() abandoned}; it records
+     * the number of pages and results fetched.
+     *
+     * @param <T> the type of the results.
+     */
+    final class Pages<T> implements IntFunction<T[]> {
+        private final IntFunction<T[]> fetch;
+        private final Span parent;
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private volatile Span span;
+        private long pages;
+        private long results;
+
+        private Pages(final IntFunction<T[]> fetch, final Span parent) {
+            this.fetch = fetch;
+            this.parent = parent;
+        }
+
+        @Override
+        @SuppressWarnings("try")
+        public T[] apply(final int start) {
+            if (ended.get()) {
+                return fetch.apply(start);
+            }
+            if (span == null) {
+                try (Scope ignored = parent.makeCurrent()) {
+                    span = Operation.this.start();
+                }
+            }
+            final T[] page;
+            try (Scope ignored = span.makeCurrent()) {
+                page = fetch.apply(start);
+            } catch (RuntimeException e) {
+                span.recordException(e);
+                end();
+                throw e;
+            }
+            if (page == null || page.length == 0) {
+                end();
+            } else {
+                pages++;
+                results += page.length;
+            }
+            return page;
+        }
+
+        /**
+         * Ends the span, if it has started and not yet ended.
+         */
+        void end() {
+            if (span != null && ended.compareAndSet(false, true)) {
+                span.setAttribute("confluence.pages", pages)
+                        .setAttribute("confluence.results", results)
+                        .end();
+            }
+        }
+    }
+
+}
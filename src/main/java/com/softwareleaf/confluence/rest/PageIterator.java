@@ -0,0 +1,75 @@
+package com.softwareleaf.confluence.rest;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a paginated API call, fetching each page only when the
+ * previous one has been consumed.
+ * <p>The server may return fewer results than the {@literal limit} requested, for example
+ * when the body is expanded, so the end of the results is only assumed once an empty
+ * page is returned.
+ *
+ * @param <T> the type of the results.
+ * @author Jonathon Hope
+ */
+final class PageIterator<T> implements Iterator<T> {
+
+    /**
+     * Fetches the page of results beginning at the given {@literal start} index.
+     */
+    private final IntFunction<T[]> fetch;
+    private T[] page;
+    private int index;
+    private int start;
+    private boolean exhausted;
+
+    /**
+     * Constructor.
+     *
+     * @param fetch fetches the page of results beginning at the given start index; may
+     *              return {@code null} or an empty array when there are no more results.
+     */
+    PageIterator(final IntFunction<T[]> fetch) {
+        this.fetch = fetch;
+    }
+
+    /**
+     * @param fetch fetches the page of results beginning at the given start index.
+     * @param <T>   the type of the results.
+     * @return a lazily populated, sequential stream of the results.
+     */
+    static <T> Stream<T> stream(final IntFunction<T[]> fetch) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new PageIterator<>(fetch), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!exhausted && (page == null || index == page.length)) {
+            page = fetch.apply(start);
+            index = 0;
+            if (page == null || page.length == 0) {
+                exhausted = true;
+                page = null;
+            } else {
+                start += page.length;
+            }
+        }
+        return !exhausted;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page[index++];
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.softwareleaf.confluence.rest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Publishes the results of a paginated API call, fetching each page only when a
+ * subscriber has requested more results than remain of the previous one; so at most one
+ * page of results is held per subscriber, and a slow subscriber slows the fetching.
+ * <p>Each subscriber fetches the results independently. Pages are fetched, and results
+ * delivered, on a shared pool of daemon threads, never on the thread that requests them.
+ * As with {@link PageIterator}, the end of the results is only known once an empty page
+ * is fetched, so {@code onComplete} is signalled once the subscriber requests more
+ * results than there are.
+ * <p>Each subscription is traced as a span of the {@link Operation}, which ends when the
+ * subscription is completed, failed or cancelled.
+ *
+ * @param <T> the type of the results.
+ * @author Jonathon Hope
+ */
+final class PagePublisher<T> implements Publisher<T> {
+
+    /**
+     * Fetches pages and delivers results; threads are only kept while in use.
+     */
+    private static final Executor EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("confluence-publisher-%d")
+            .setDaemon(true)
+            .build());
+
+    /**
+     * The operation each subscription is traced as.
+     */
+    private final Operation operation;
+    /**
+     * Fetches the page of results beginning at the given {@literal start} index.
+     */
+    private final IntFunction<T[]> fetch;
+
+    /**
+     * Constructor.
+     *
+     * @param operation the operation each subscription is traced as.
+     * @param fetch     fetches the page of results beginning at the given start index; may
+     *                  return {@code null} or an empty array when there are no more results.
+     */
+    PagePublisher(final Operation operation, final IntFunction<T[]> fetch) {
+        this.operation = operation;
+        this.fetch = fetch;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        final PageSubscription subscription = new PageSubscription(subscriber);
+        subscription.schedule();
+    }
+
+    /**
+     * The state of a single subscriber. Every signal to the subscriber is sent from
+     * {@link #drain()}, which is only ever run by one thread at a time.
+     */
+    private final class PageSubscription implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        /**
+         * The fetch of this subscription, traced as a child of the span current when subscribing.
+         */
+        private final Operation.Pages<T> pages;
+        private final AtomicLong requested = new AtomicLong();
+        /**
+         * The number of times drain has been scheduled, but not yet run to completion.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+
+        // only accessed by drain.
+        private boolean subscribed;
+        private T[] page;
+        private int index;
+        private int start;
+        private boolean exhausted;
+
+        PageSubscription(final Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            this.pages = operation.pages(fetch);
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive, was " + n);
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (current != Long.MAX_VALUE && !requested.compareAndSet(current, next));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                EXECUTOR.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                final long demand = requested.get();
+                long emitted = 0;
+                while (true) {
+                    if (cancelled) {
+                        page = null;
+                        pages.end();
+                        return;
+                    }
+                    if (invalidRequest != null) {
+                        cancelled = true;
+                        pages.end();
+                        subscriber.onError(invalidRequest);
+                        return;
+                    }
+                    if (emitted == demand) {
+                        break;
+                    }
+                    if (page == null || index == page.length) {
+                        if (!fetchPage()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    final T next = page[index];
+                    page[index++] = null;
+                    subscriber.onNext(next);
+                    emitted++;
+                }
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        // fetches the next page; returns false if the subscriber has been terminated.
+        private boolean fetchPage() {
+            if (!exhausted) {
+                try {
+                    page = pages.apply(start);
+                } catch (RuntimeException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                    return false;
+                }
+                index = 0;
+                if (page != null && page.length > 0) {
+                    start += page.length;
+                    return true;
+                }
+                exhausted = true;
+                page = null;
+            }
+            cancelled = true;
+            subscriber.onComplete();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.softwareleaf.confluence.rest;
+
+/**
+ * Notified as each piece of content in a {@link ContentBatch} operation is processed.
+ * <p>Listeners are called from the threads performing the operation, so they must be
+ * thread safe, and should return quickly.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     ContentBatch.builder(client)
+ *          .progressListener((completed, total, id, failure) -> {
+ *              if (completed % 100 == 0) {
+ *                  System.out.println(completed + "/" + total);
+ *              }
+ *          })
+ *          .build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * A listener that ignores all progress.
+     */
+    ProgressListener NONE = (completed, total, id, failure) -> {
+    };
+
+    /**
+     * Called once a piece of content has been processed, successfully or not.
+     *
+     * @param completed the number of pieces of content processed so far, including this one.
+     * @param total     the number of pieces of content in the operation.
+     * @param id        the id of the content just processed.
+     * @param failure   the exception thrown while processing the content, or {@code null}
+     *                  if it succeeded or was skipped.
+     */
+    void onProgress(int completed, int total, String id, RuntimeException failure);
+
+}
@@ -1,5 +1,7 @@
 package com.softwareleaf.confluence.rest;
 
+import java.util.Locale;
+
 /**
  * An easy way to access common query params.
  *
@@ -27,9 +29,15 @@ public interface QueryParams {
         VERSION,
         METADATA;
 
+        private final String value;
+
+        Expandables() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return name().toLowerCase();
+            return value;
         }
 
     }
@@ -44,9 +52,15 @@ public interface QueryParams {
         CURRENT,
         TRASHED;
 
+        private final String value;
+
+        Status() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return name().toLowerCase();
+            return value;
         }
     }
 
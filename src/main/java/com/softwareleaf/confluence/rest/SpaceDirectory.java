@@ -0,0 +1,341 @@
+package com.softwareleaf.confluence.rest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.softwareleaf.confluence.rest.model.Space;
+import com.softwareleaf.confluence.rest.model.SpaceResultList;
+import com.softwareleaf.confluence.rest.trace.Scope;
+import com.softwareleaf.confluence.rest.trace.Span;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cached directory of every space on a confluence instance, with lookups by key and
+ * by name.
+ * <p>The first lookup loads the directory; after that, lookups are answered from an
+ * immutable snapshot and never block. Once the snapshot is older than the configured
+ * time to live, the next lookup starts a refresh in the background, and continues to be
+ * answered from the old snapshot until the refresh completes.
+ * <p>Spaces are fetched in waves of pages requested in parallel, as the total number of
+ * spaces is not known in advance; a wave ends the listing once any of its pages is short.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (SpaceDirectory spaces = SpaceDirectory.builder(client)
+ *             .timeToLive(Duration.ofMinutes(15))
+ *             .build()) {
+ *         Optional<Space> dev = spaces.getByKey("DEV");
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see ConfluenceClient#getSpaces()
+ */
+public class SpaceDirectory implements AutoCloseable {
+    /**
+     * The default time after which the directory is refreshed.
+     */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+    /**
+     * The default number of pages requested at once.
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+    /**
+     * The number of spaces requested per page.
+     */
+    private static final int PAGE_SIZE = 200;
+
+    /**
+     * the Logger instance used by this class.
+     */
+    private static final Logger logger = Logger.getLogger(SpaceDirectory.class.getName());
+
+    private final ConfluenceClient client;
+    private final Duration timeToLive;
+    private final int concurrency;
+    private final Clock clock;
+    /**
+     * Fetches pages, and performs background refreshes.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The current snapshot; {@code null} until the first load.
+     */
+    private volatile Snapshot snapshot;
+    /**
+     * The refresh in progress, if any.
+     */
+    private final AtomicReference<CompletableFuture<Snapshot>> refreshing = new AtomicReference<>();
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private SpaceDirectory(final Builder builder) {
+        this.client = builder.client;
+        this.timeToLive = builder.timeToLive;
+        this.concurrency = builder.concurrency;
+        this.clock = builder.clock;
+        this.executor = Executors.newFixedThreadPool(builder.concurrency + 1,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("confluence-spaces-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * @param key the key of a space; keys are matched exactly.
+     * @return the space, if it exists.
+     */
+    public Optional<Space> getByKey(final String key) {
+        return Optional.ofNullable(current().byKey.get(key));
+    }
+
+    /**
+     * @param name the name of a space; names are matched ignoring case.
+     * @return the spaces with the given name, of which there are rarely more than one.
+     */
+    public List<Space> getByName(final String name) {
+        return current().byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return every space, in the order in which the server listed them.
+     */
+    public List<Space> getSpaces() {
+        return current().spaces;
+    }
+
+    /**
+     * Reloads the directory now, blocking until it is complete.
+     */
+    public void refresh() {
+        join(startRefresh());
+    }
+
+    /**
+     * Stops any background refresh; a caller waiting for it fails instead.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        // a refresh still queued will never run.
+        final CompletableFuture<Snapshot> pending = refreshing.getAndSet(null);
+        if (pending != null) {
+            pending.completeExceptionally(new RejectedExecutionException("the space directory is closed"));
+        }
+    }
+
+    // returns the current snapshot, loading it if there is none, and refreshing it if stale.
+    private Snapshot current() {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            return join(startRefresh());
+        }
+        if (current.loaded.plus(timeToLive).isBefore(clock.instant())) {
+            startRefresh();
+        }
+        return current;
+    }
+
+    // starts a refresh, unless one is already in progress.
+    private CompletableFuture<Snapshot> startRefresh() {
+        final CompletableFuture<Snapshot> pending = new CompletableFuture<>();
+        final CompletableFuture<Snapshot> existing = refreshing.compareAndSet(null, pending) ? null : refreshing.get();
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    final Snapshot loaded = client.operation("confluence.spaceDirectory.refresh", null, null)
+                            .call(this::load);
+                    snapshot = loaded;
+                    pending.complete(loaded);
+                } catch (Throwable e) {
+                    logger.log(Level.WARNING, "Failed to load the space directory", e);
+                    pending.completeExceptionally(e);
+                } finally {
+                    refreshing.compareAndSet(pending, null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the directory is closed; otherwise later callers would wait on this refresh forever.
+            refreshing.compareAndSet(pending, null);
+            pending.completeExceptionally(e);
+        }
+        return pending;
+    }
+
+    // fetches every space, a wave of pages at a time, as children of the current span.
+    @SuppressWarnings("try")
+    private Snapshot load() {
+        final Instant started = clock.instant();
+        final Span span = Span.current();
+        final List<Space> spaces = new ArrayList<>();
+        // the first page tells us the limit the server actually applies.
+        final SpaceResultList first = client.getSpaces(0, PAGE_SIZE);
+        final int limit = first.getLimit() > 0 ? first.getLimit() : PAGE_SIZE;
+        boolean more = addPage(spaces, first, limit);
+        int start = length(first);
+        while (more) {
+            final List<CompletableFuture<SpaceResultList>> wave = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                final int pageStart = start + i * limit;
+                wave.add(CompletableFuture.supplyAsync(() -> {
+                    try (Scope ignored = span.makeCurrent()) {
+                        return client.getSpaces(pageStart, limit);
+                    }
+                }, executor));
+            }
+            for (CompletableFuture<SpaceResultList> page : wave) {
+                final SpaceResultList result = join(page);
+                if (more) {
+                    more = addPage(spaces, result, limit);
+                }
+            }
+            start += concurrency * limit;
+        }
+        span.setAttribute("confluence.results", spaces.size());
+        return new Snapshot(spaces, started);
+    }
+
+    // adds the spaces of a page, returning true if there may be more.
+    private static boolean addPage(final List<Space> spaces, final SpaceResultList page, final int limit) {
+        if (page.getSpaces() != null) {
+            Collections.addAll(spaces, page.getSpaces());
+        }
+        return length(page) >= limit;
+    }
+
+    private static int length(final SpaceResultList page) {
+        return page.getSpaces() == null ? 0 : page.getSpaces().length;
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * An immutable view of every space, as loaded at a point in time.
+     */
+    private static final class Snapshot {
+        private final List<Space> spaces;
+        private final ImmutableMap<String, Space> byKey;
+        private final ImmutableListMultimap<String, Space> byName;
+        private final Instant loaded;
+
+        Snapshot(final List<Space> spaces, final Instant loaded) {
+            this.spaces = ImmutableList.copyOf(spaces);
+            final ImmutableMap.Builder<String, Space> keys = ImmutableMap.builder();
+            final ImmutableListMultimap.Builder<String, Space> names = ImmutableListMultimap.builder();
+            for (Space space : this.spaces) {
+                if (space.getKey() != null) {
+                    keys.put(space.getKey(), space);
+                }
+                if (space.getName() != null) {
+                    names.put(space.getName().toLowerCase(Locale.ROOT), space);
+                }
+            }
+            this.byKey = keys.build();
+            this.byName = names.build();
+            this.loaded = loaded;
+        }
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param client the client used to list the spaces.
+     * @return a {@code Builder} instance for chain-building a {@code SpaceDirectory}.
+     * @throws NullPointerException if {@code client} is null.
+     */
+    public static Builder builder(final ConfluenceClient client) {
+        return new Builder(Objects.requireNonNull(client));
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code SpaceDirectory}.
+     */
+    public static class Builder {
+        private final ConfluenceClient client;
+        private Duration timeToLive = DEFAULT_TIME_TO_LIVE;
+        private int concurrency = DEFAULT_CONCURRENCY;
+        private Clock clock = Clock.systemUTC();
+
+        // prevent direct instantiation by external classes.
+        private Builder(final ConfluenceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * Sets the age after which the directory is refreshed in the background.
+         *
+         * @param timeToLive a positive duration.
+         * @return {@code this}.
+         */
+        public Builder timeToLive(final Duration timeToLive) {
+            if (timeToLive.isNegative() || timeToLive.isZero()) {
+                throw new IllegalArgumentException("timeToLive must be positive.");
+            }
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Sets the number of pages of spaces requested at once.
+         *
+         * @param concurrency a value greater than {@code 0}.
+         * @return {@code this}.
+         */
+        public Builder concurrency(final int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1.");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Sets the clock used to age the directory; intended for testing.
+         *
+         * @param clock the clock.
+         * @return {@code this}.
+         */
+        public Builder clock(final Clock clock) {
+            this.clock = Objects.requireNonNull(clock);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code SpaceDirectory}.
+         */
+        public SpaceDirectory build() {
+            return new SpaceDirectory(this);
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.softwareleaf.confluence.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.softwareleaf.confluence.rest.macro.StorageWriter;
+import com.softwareleaf.confluence.rest.model.Content;
+import com.softwareleaf.confluence.rest.model.Storage;
+import com.softwareleaf.confluence.rest.util.JsonStringWriter;
+import retrofit.mime.TypedOutput;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * A request body for {@literal POST /rest/api/content} that streams the
+ * {@literal body.storage.value} of the {@code Content} straight to the connection,
+ * escaping it as JSON as it goes, rather than serializing the whole {@code Content}
+ * into memory first.
+ * <p>The rest of the {@code Content} (title, space, ancestors and so on) is serialized
+ * as usual, and its {@code body}, if any, is ignored.
+ *
+ * @author Jonathon Hope
+ * @see ConfluenceClient#postContent(Content, Reader)
+ * @see ConfluenceClient#postContent(Content, Consumer)
+ */
+class StreamingContentBody implements TypedOutput {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Writes the storage value, as unescaped markup, to the given {@code Writer}.
+     */
+    @FunctionalInterface
+    interface BodySource {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * The JSON of the {@code Content} without its body, minus the closing brace.
+     */
+    private final String head;
+    /**
+     * The source of the storage value.
+     */
+    private final BodySource source;
+
+    /**
+     * Constructor.
+     *
+     * @param gson    the {@code Gson} instance used to serialize the {@code Content}.
+     * @param content the {@code Content} whose metadata is to be sent.
+     * @param source  the source of the storage value.
+     */
+    StreamingContentBody(final Gson gson, final Content content, final BodySource source) {
+        final JsonObject json = gson.toJsonTree(content).getAsJsonObject();
+        json.remove("body");
+        final String serialized = gson.toJson(json);
+        // drop the closing brace; the body is appended as the last member.
+        final String members = serialized.substring(0, serialized.lastIndexOf('}'));
+        this.head = json.entrySet().isEmpty() ? members : members + ",";
+        this.source = source;
+    }
+
+    /**
+     * Creates a body whose storage value is read from {@code reader}. As the reader can only
+     * be consumed once, the request cannot be retried by the HTTP client.
+     *
+     * @param gson    the {@code Gson} instance used to serialize the {@code Content}.
+     * @param content the {@code Content} whose metadata is to be sent.
+     * @param reader  the source of the storage value.
+     * @return the request body.
+     */
+    static StreamingContentBody fromReader(final Gson gson, final Content content, final Reader reader) {
+        return new StreamingContentBody(gson, content, writer -> {
+            final char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, read);
+            }
+        });
+    }
+
+    /**
+     * Creates a body whose storage value is written by {@code generator}, for example by
+     * appending macros to the given {@code StorageWriter}.
+     *
+     * @param gson      the {@code Gson} instance used to serialize the {@code Content}.
+     * @param content   the {@code Content} whose metadata is to be sent.
+     * @param generator writes the storage value.
+     * @return the request body.
+     */
+    static StreamingContentBody fromGenerator(final Gson gson, final Content content,
+                                              final Consumer<StorageWriter> generator) {
+        return new StreamingContentBody(gson, content, writer -> {
+            try {
+                generator.accept(new StorageWriter(writer));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Override
+    public String fileName() {
+        return null;
+    }
+
+    @Override
+    public String mimeType() {
+        return "application/json; charset=UTF-8";
+    }
+
+    /**
+     * @return {@code -1}, as the length is not known until the body has been written;
+     * the request is therefore sent using chunked transfer encoding.
+     */
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(head);
+        writer.write("\"body\":{\"storage\":{\"representation\":\"");
+        writer.write(Storage.Representation.STORAGE.toString());
+        writer.write("\",\"value\":\"");
+        source.writeTo(new JsonStringWriter(writer));
+        writer.write("\"}}}");
+        writer.flush();
+    }
+
+}
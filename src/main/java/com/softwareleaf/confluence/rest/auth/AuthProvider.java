@@ -0,0 +1,57 @@
+package com.softwareleaf.confluence.rest.auth;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Supplies the {@code Authorization} header of each request made by a
+ * {@code ConfluenceClient}.
+ * <p>The provider is called for every request, so implementations should compute header
+ * values ahead of time, rather than per request, and must be thread safe. The credentials
+ * are sent alongside the session the server establishes on the first request, which the
+ * server authenticates instead while it lasts; so a request whose session has lapsed is
+ * authenticated by its credentials, rather than rejected or treated as anonymous.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     ConfluenceClient client = ConfluenceClient.builder()
+ *             // other methods omitted for brevity...
+ *             .authProvider(new BearerTokenProvider(personalAccessToken))
+ *             .build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see BasicAuthProvider
+ * @see BearerTokenProvider
+ * @see RefreshingTokenProvider
+ */
+public interface AuthProvider {
+
+    /**
+     * @return the value of the {@code Authorization} header, or {@code null} to send none.
+     */
+    String getAuthorization();
+
+    /**
+     * Supplies the value of the {@code Authorization} header without blocking the calling
+     * thread; this is how the client obtains it for every request, as a request may be sent
+     * from one of the transport's own threads, such as to retry it or fail it over to another
+     * node. By default, the value of {@link #getAuthorization()}, which should then not block.
+     *
+     * @return a future of the value, or of {@code null} to send none.
+     */
+    default CompletableFuture<String> getAuthorizationAsync() {
+        return CompletableFuture.completedFuture(getAuthorization());
+    }
+
+    /**
+     * Called when the server rejects a request with a {@code 401} status, so that the
+     * provider can discard credentials that have expired or been revoked; by default,
+     * nothing. The request is then retried once, with the next value supplied by
+     * {@link #getAuthorizationAsync()}, if it was sent with a session, or if that value
+     * differs from the rejected one; and unless its body cannot be sent again.
+     *
+     * @param authorization the rejected value.
+     */
+    default void invalidate(final String authorization) {
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.softwareleaf.confluence.rest.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Authenticates with a username and password, by HTTP Basic authentication.
+ *
+ * @author Jonathon Hope
+ */
+public final class BasicAuthProvider implements AuthProvider {
+
+    private final String authorization;
+
+    /**
+     * Constructor.
+     *
+     * @param username the username.
+     * @param password the password matching the username.
+     */
+    public BasicAuthProvider(final String username, final String password) {
+        final String credentials = Objects.requireNonNull(username) + ":" + Objects.requireNonNull(password);
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getAuthorization() {
+        return authorization;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.softwareleaf.confluence.rest.auth;
+
+import java.util.Objects;
+
+/**
+ * Authenticates with a fixed bearer token, such as a Confluence personal access token.
+ *
+ * @author Jonathon Hope
+ * @see RefreshingTokenProvider
+ */
+public final class BearerTokenProvider implements AuthProvider {
+
+    private final String authorization;
+
+    /**
+     * Constructor.
+     *
+     * @param token the token.
+     */
+    public BearerTokenProvider(final String token) {
+        this.authorization = "Bearer " + Objects.requireNonNull(token);
+    }
+
+    @Override
+    public String getAuthorization() {
+        return authorization;
+    }
+
+}
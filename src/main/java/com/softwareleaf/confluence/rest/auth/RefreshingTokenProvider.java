@@ -0,0 +1,224 @@
+package com.softwareleaf.confluence.rest.auth;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Authenticates with bearer tokens that expire, such as OAuth 2.0 access tokens, and
+ * obtains a new token from a {@code Supplier} ahead of expiry.
+ * <p>Once a token is within the {@link Builder#refreshAhead(Duration) refresh window} of
+ * its expiry, a new one is fetched in the background, while requests continue with the
+ * current token; so requests only wait for a token when there is none, or it has expired.
+ * Only one token is fetched at a time, however many requests need one.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     AuthProvider auth = RefreshingTokenProvider.builder(() -> {
+ *         OAuthResponse response = oauthClient.clientCredentialsGrant();
+ *         return new RefreshingTokenProvider.Token(response.accessToken(),
+ *                 Instant.now().plusSeconds(response.expiresIn()));
+ *     }).build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public final class RefreshingTokenProvider implements AuthProvider {
+
+    /**
+     * The default time before expiry at which a token is refreshed.
+     */
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofMinutes(1);
+
+    /**
+     * Fetches tokens; threads are only kept while in use.
+     */
+    private static final Executor EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("confluence-auth-%d")
+            .setDaemon(true)
+            .build());
+
+    private final Supplier<Token> source;
+    private final Duration refreshAhead;
+    private final Clock clock;
+    private final AtomicReference<Token> token = new AtomicReference<>();
+    /**
+     * The fetch of the next token, while one is in progress.
+     */
+    private final AtomicReference<CompletableFuture<Token>> refreshing = new AtomicReference<>();
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private RefreshingTokenProvider(final Builder builder) {
+        this.source = builder.source;
+        this.refreshAhead = builder.refreshAhead;
+        this.clock = builder.clock;
+    }
+
+    /**
+     * @return the current token's header value, waiting for a new token if there is none.
+     * @throws RuntimeException as thrown by the token source.
+     */
+    @Override
+    public String getAuthorization() {
+        final Token current = token.get();
+        final Instant now = clock.instant();
+        if (current == null || !now.isBefore(current.expiresAt)) {
+            try {
+                return refresh().join().authorization;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        if (!now.isBefore(current.expiresAt.minus(refreshAhead))) {
+            refresh();
+        }
+        return current.authorization;
+    }
+
+    /**
+     * @return the current token's header value, or else a future of the next token's.
+     */
+    @Override
+    public CompletableFuture<String> getAuthorizationAsync() {
+        final Token current = token.get();
+        final Instant now = clock.instant();
+        if (current == null || !now.isBefore(current.expiresAt)) {
+            return refresh().thenApply(fetched -> fetched.authorization);
+        }
+        if (!now.isBefore(current.expiresAt.minus(refreshAhead))) {
+            refresh();
+        }
+        return CompletableFuture.completedFuture(current.authorization);
+    }
+
+    /**
+     * Discards the current token, if it is the one rejected, so that the next request
+     * waits for a new one.
+     */
+    @Override
+    public void invalidate(final String authorization) {
+        final Token current = token.get();
+        if (current != null && current.authorization.equals(authorization)) {
+            token.compareAndSet(current, null);
+        }
+    }
+
+    // the fetch in progress, or else a new one.
+    private CompletableFuture<Token> refresh() {
+        while (true) {
+            final CompletableFuture<Token> inProgress = refreshing.get();
+            if (inProgress != null) {
+                return inProgress;
+            }
+            final CompletableFuture<Token> fetch = new CompletableFuture<>();
+            if (refreshing.compareAndSet(null, fetch)) {
+                EXECUTOR.execute(() -> {
+                    try {
+                        final Token fetched = Objects.requireNonNull(source.get(), "token source returned null");
+                        token.set(fetched);
+                        refreshing.set(null);
+                        fetch.complete(fetched);
+                    } catch (Throwable e) {
+                        // any failure, even an Error, must complete the fetch, or callers wait forever.
+                        refreshing.set(null);
+                        fetch.completeExceptionally(e);
+                    }
+                });
+                return fetch;
+            }
+        }
+    }
+
+    /**
+     * A bearer token, and when it expires.
+     */
+    public static final class Token {
+        private final String authorization;
+        private final Instant expiresAt;
+
+        /**
+         * Constructor.
+         *
+         * @param value     the token.
+         * @param expiresAt when the token expires.
+         */
+        public Token(final String value, final Instant expiresAt) {
+            this.authorization = "Bearer " + Objects.requireNonNull(value);
+            this.expiresAt = Objects.requireNonNull(expiresAt);
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param source fetches a new token; called on a background thread, one call at a time.
+     * @return a {@code Builder} instance for chain-building a {@code RefreshingTokenProvider}.
+     */
+    public static Builder builder(final Supplier<Token> source) {
+        return new Builder(Objects.requireNonNull(source));
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code RefreshingTokenProvider}.
+     */
+    public static class Builder {
+        private final Supplier<Token> source;
+        private Duration refreshAhead = DEFAULT_REFRESH_AHEAD;
+        private Clock clock = Clock.systemUTC();
+
+        // prevent direct instantiation by external classes.
+        private Builder(final Supplier<Token> source) {
+            this.source = source;
+        }
+
+        /**
+         * @param refreshAhead the time before expiry at which a token is refreshed.
+         * @return {@code this}.
+         */
+        public Builder refreshAhead(final Duration refreshAhead) {
+            if (refreshAhead.isNegative()) {
+                throw new IllegalArgumentException("refreshAhead must not be negative.");
+            }
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * Sets the clock used to expire tokens; intended for testing.
+         *
+         * @param clock the clock.
+         * @return {@code this}.
+         */
+        public Builder clock(final Clock clock) {
+            this.clock = Objects.requireNonNull(clock);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code RefreshingTokenProvider}.
+         */
+        public RefreshingTokenProvider build() {
+            return new RefreshingTokenProvider(this);
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.softwareleaf.confluence.rest.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fixed size blocks of memory outside the Java heap, in which the bytes of bodies are
+ * stored; either direct {@code ByteBuffer}s, or regions of a memory-mapped file.
+ * <p>A body occupies as many blocks as it needs, wherever they are free, so freed space
+ * never fragments. Memory is reserved a segment at a time, as blocks are first needed;
+ * segments are small, as a direct buffer is zeroed, and so committed, when allocated.
+ * <p>This class is not thread safe.
+ *
+ * @author Jonathon Hope
+ */
+final class BodyArena implements Closeable {
+
+    /**
+     * The size of a segment, the most memory reserved at once.
+     */
+    private static final int SEGMENT_SIZE = 32 << 20;
+
+    private final int blockSize;
+    private final int blocksPerSegment;
+    private final int blockCount;
+    private final FileChannel file;
+    private final ByteBuffer[] segments;
+    /**
+     * The number of blocks handed out from reserved segments; blocks above this have
+     * never been used.
+     */
+    private int highWater;
+    // a stack of freed blocks.
+    private int[] free = new int[64];
+    private int freeCount;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity  the most bytes to hold.
+     * @param blockSize the size of a block.
+     * @param file      the file to map the blocks to, or {@code null} for direct memory.
+     * @throws UncheckedIOException if the file cannot be opened.
+     */
+    BodyArena(final long capacity, final int blockSize, final Path file) {
+        this.blockSize = blockSize;
+        this.blocksPerSegment = SEGMENT_SIZE / blockSize;
+        final long blocks = Math.max(1, capacity / blockSize);
+        if (blocks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity / blockSize must fit in an int");
+        }
+        this.blockCount = (int) blocks;
+        this.segments = new ByteBuffer[(blockCount + blocksPerSegment - 1) / blocksPerSegment];
+        try {
+            this.file = file == null ? null : FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param length a number of bytes.
+     * @return the number of blocks needed to hold them.
+     */
+    int blocksFor(final int length) {
+        return (length + blockSize - 1) / blockSize;
+    }
+
+    /**
+     * @return the total number of blocks.
+     */
+    int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return the number of blocks available to {@link #allocate(int)}.
+     */
+    int getFreeBlocks() {
+        return freeCount + blockCount - highWater;
+    }
+
+    /**
+     * @param blocks the number of blocks.
+     * @return the allocated blocks, or {@code null} if too few are free.
+     */
+    int[] allocate(final int blocks) {
+        if (blocks > getFreeBlocks()) {
+            return null;
+        }
+        final int[] allocated = new int[blocks];
+        int i = 0;
+        while (i < blocks && freeCount > 0) {
+            allocated[i++] = free[--freeCount];
+        }
+        while (i < blocks) {
+            allocated[i++] = highWater++;
+        }
+        return allocated;
+    }
+
+    /**
+     * @param blocks blocks returned by {@link #allocate(int)}, which must not be used again.
+     */
+    void free(final int[] blocks) {
+        if (freeCount + blocks.length > free.length) {
+            free = Arrays.copyOf(free, Math.max(freeCount + blocks.length, free.length * 2));
+        }
+        System.arraycopy(blocks, 0, free, freeCount, blocks.length);
+        freeCount += blocks.length;
+    }
+
+    /**
+     * @param blocks the blocks to write to, enough to hold {@code bytes}.
+     * @param bytes  the bytes to write.
+     */
+    void write(final int[] blocks, final byte[] bytes) {
+        for (int i = 0, offset = 0; offset < bytes.length; i++, offset += blockSize) {
+            final ByteBuffer block = block(blocks[i]);
+            block.put(bytes, offset, Math.min(blockSize, bytes.length - offset));
+        }
+    }
+
+    /**
+     * @param blocks the blocks to read.
+     * @param length the number of bytes written to the blocks.
+     * @return the bytes.
+     */
+    byte[] read(final int[] blocks, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0, offset = 0; offset < length; i++, offset += blockSize) {
+            block(blocks[i]).get(bytes, offset, Math.min(blockSize, length - offset));
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases the memory, or closes the file, holding the blocks. Mapped memory is
+     * released once the arena is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(segments, null);
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    // a view of a single block, positioned at its start.
+    private ByteBuffer block(final int block) {
+        final int index = block / blocksPerSegment;
+        ByteBuffer segment = segments[index];
+        if (segment == null) {
+            segment = segments[index] = reserve(index);
+        }
+        final ByteBuffer view = segment.duplicate();
+        view.position((block % blocksPerSegment) * blockSize);
+        return view;
+    }
+
+    private ByteBuffer reserve(final int index) {
+        final int blocks = Math.min(blocksPerSegment, blockCount - index * blocksPerSegment);
+        final long size = (long) blocks * blockSize;
+        if (file == null) {
+            return ByteBuffer.allocateDirect((int) size);
+        }
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, (long) index * blocksPerSegment * blockSize, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
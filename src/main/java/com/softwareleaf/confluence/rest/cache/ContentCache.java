@@ -0,0 +1,479 @@
+package com.softwareleaf.confluence.rest.cache;
+
+import com.softwareleaf.confluence.rest.ConfluenceClient;
+import com.softwareleaf.confluence.rest.model.Body;
+import com.softwareleaf.confluence.rest.model.CompressedText;
+import com.softwareleaf.confluence.rest.model.Content;
+import com.softwareleaf.confluence.rest.model.Storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A read-through cache of {@code Content}, fetched by id, in two tiers: the metadata of
+ * each piece of content is held on the heap, while the bytes of its body are held outside
+ * it, in direct memory or a memory-mapped file. So gigabytes of bodies can be cached
+ * without being traced by the garbage collector.
+ * <p>Bodies are only decoded when read: each call to {@link #getContentById(String)}
+ * returns a new copy of the content, whose body is decoded the first time its
+ * {@link Storage#getValue() value} is read. If the content is evicted before then, the
+ * body is fetched from the server instead.
+ * <p>The least recently used content is evicted once either the number of entries, or
+ * the size of the bodies, would exceed the configured limits. Content whose body alone
+ * exceeds the size limit is not cached.
+ * <p>Bodies can also be {@linkplain Builder#compressBodies(boolean) compressed}, which
+ * typically fits ten times as many in the same memory.
+ * <p>Direct memory is limited by {@code -XX:MaxDirectMemorySize}, which defaults to the
+ * maximum heap size; a cache whose bodies are not {@linkplain Builder#memoryMapped(Path)
+ * memory-mapped} needs a limit that leaves room for {@code maxBodyBytes}, besides the
+ * direct buffers of the rest of the application.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (ContentCache cache = ContentCache.builder(client)
+ *             .maxBodyBytes(8L << 30)
+ *             .memoryMapped(Paths.get("/var/cache/confluence/bodies"))
+ *             .build()) {
+ *         Content page = cache.getContentById("12345");
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public class ContentCache implements AutoCloseable {
+
+    /**
+     * The default limit on the number of entries.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    /**
+     * The default limit on the size of the cached bodies, in bytes.
+     */
+    public static final long DEFAULT_MAX_BODY_BYTES = 256L << 20;
+    /**
+     * The default size of the blocks bodies are stored in.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final ConfluenceClient client;
+    private final int maxEntries;
+    private final boolean compressBodies;
+    private final BodyArena arena;
+
+    private final Lock lock = new ReentrantLock();
+    /**
+     * The entries, in order of access; the least recently used first.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private ContentCache(final Builder builder) {
+        this.client = builder.client;
+        this.maxEntries = builder.maxEntries;
+        this.compressBodies = builder.compressBodies;
+        this.arena = new BodyArena(builder.maxBodyBytes, builder.blockSize, builder.file);
+    }
+
+    /**
+     * Gets content from the cache, or else fetches it, with its body, and caches it.
+     *
+     * @param id the id of the content.
+     * @return a copy of the content.
+     * @see ConfluenceClient#getContentById(String)
+     */
+    public Content getContentById(final String id) {
+        final Optional<Content> cached = getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        final Content fetched = client.getContentById(id);
+        put(fetched);
+        return fetched;
+    }
+
+    /**
+     * @param id the id of the content.
+     * @return a copy of the content, if it is cached.
+     */
+    public Optional<Content> getIfPresent(final String id) {
+        lock.lock();
+        try {
+            final Entry entry = entries.get(id);
+            if (entry == null) {
+                misses++;
+                return Optional.empty();
+            }
+            hits++;
+            return Optional.of(entry.toContent());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches content, for example content just created or updated by the caller,
+     * replacing any cached content with the same id.
+     *
+     * @param content the content, which must have an id.
+     */
+    public void put(final Content content) {
+        Objects.requireNonNull(content.getId(), "content must have an id");
+        final Storage storage = content.getBody() == null ? null : content.getBody().getStorage();
+        final String value = storage == null ? null : storage.getValue();
+        // encoded before taking the lock, as bodies can be large.
+        byte[] bytes = null;
+        int textLength = 0;
+        if (value != null && compressBodies) {
+            final CompressedText compressed = storage.getCompressedValue().orElseGet(() -> CompressedText.of(value));
+            bytes = compressed.toDeflated();
+            textLength = compressed.getLength();
+        } else if (value != null) {
+            bytes = value.getBytes(StandardCharsets.UTF_8);
+            textLength = bytes.length;
+        }
+        lock.lock();
+        try {
+            remove(content.getId());
+            int[] blocks = null;
+            if (bytes != null) {
+                final int needed = arena.blocksFor(bytes.length);
+                if (needed > arena.getBlockCount()) {
+                    return;
+                }
+                while ((blocks = arena.allocate(needed)) == null) {
+                    evictEldest();
+                }
+                arena.write(blocks, bytes);
+            }
+            while (entries.size() >= maxEntries) {
+                evictEldest();
+            }
+            entries.put(content.getId(), new Entry(content, storage, blocks, bytes == null ? 0 : bytes.length, textLength));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param id the id of the content to forget, for example content just deleted.
+     * @return {@code true} if the content was cached.
+     */
+    public boolean invalidate(final String id) {
+        lock.lock();
+        try {
+            return remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of pieces of content cached.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of lookups that found the content cached.
+     */
+    public long getHitCount() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of lookups that did not find the content cached.
+     */
+    public long getMissCount() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries evicted to make room for others.
+     */
+    public long getEvictionCount() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empties the cache, and releases the memory, or closes the file, holding the bodies.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            for (Entry entry : entries.values()) {
+                entry.evicted = true;
+            }
+            entries.clear();
+            arena.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the lock must be held.
+    private boolean remove(final String id) {
+        final Entry entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        release(entry);
+        return true;
+    }
+
+    // the lock must be held.
+    private void evictEldest() {
+        final Iterator<Entry> eldest = entries.values().iterator();
+        final Entry entry = eldest.next();
+        eldest.remove();
+        release(entry);
+        evictions++;
+    }
+
+    private void release(final Entry entry) {
+        entry.evicted = true;
+        if (entry.blocks != null) {
+            arena.free(entry.blocks);
+        }
+    }
+
+    // reads the body of an entry, or null if it has been evicted since.
+    private byte[] readBody(final Entry entry) {
+        lock.lock();
+        try {
+            return entry.evicted ? null : arena.read(entry.blocks, entry.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The metadata of a piece of content, and the location of its body in the arena.
+     */
+    private final class Entry {
+        private final Content metadata;
+        private final String representation;
+        private final int[] blocks;
+        private final int length;
+        /**
+         * The length of the body in bytes of UTF-8; greater than {@code length} if the
+         * body is compressed.
+         */
+        private final int textLength;
+        /**
+         * Set, under the lock, once the blocks of this entry have been freed.
+         */
+        private boolean evicted;
+
+        Entry(final Content content, final Storage storage, final int[] blocks, final int length,
+              final int textLength) {
+            this.metadata = copy(content);
+            this.representation = storage == null ? null : storage.getRepresentation();
+            this.blocks = blocks;
+            this.length = length;
+            this.textLength = textLength;
+        }
+
+        // a copy of the metadata, with a body that is decoded when first read.
+        Content toContent() {
+            final Content content = copy(metadata);
+            if (blocks != null) {
+                content.setBody(new Body(Storage.lazy(new BodySource(this), representation)));
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Decodes the body of an entry when it is first read. No lock is held while the body
+     * is read, or fetched again after being evicted; threads that read it at the same time
+     * may each do so, and the first value decoded is kept.
+     */
+    private final class BodySource implements Supplier<String> {
+        /**
+         * The decoded body, or {@code null} until it has been decoded.
+         */
+        private final AtomicReference<Optional<String>> value = new AtomicReference<>();
+        /**
+         * Cleared once the body has been decoded, so the entry can be collected.
+         */
+        private volatile Entry entry;
+
+        BodySource(final Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String get() {
+            final Optional<String> decoded = value.get();
+            if (decoded != null) {
+                return decoded.orElse(null);
+            }
+            final Entry source = entry;
+            if (source != null) {
+                value.compareAndSet(null, Optional.ofNullable(decode(source)));
+                entry = null;
+            }
+            return value.get().orElse(null);
+        }
+
+        private String decode(final Entry source) {
+            final byte[] bytes = readBody(source);
+            if (bytes != null && compressBodies) {
+                return CompressedText.fromDeflated(bytes, source.textLength).get();
+            } else if (bytes != null) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            final Content fetched = client.getContentById(source.metadata.getId());
+            return fetched.getBody() == null ? null : fetched.getBody().getStorage().getValue();
+        }
+    }
+
+    // a copy of the properties of content other than its body.
+    private static Content copy(final Content content) {
+        final Content copy = new Content(content.getId(), content.getType(), content.getSpace(),
+                content.getTitle(), null);
+        copy.setAncestors(content.getAncestors());
+        copy.setVersion(content.getVersion());
+        copy.setHistory(content.getHistory());
+        return copy;
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param client the client used to fetch content that is not cached.
+     * @return a {@code Builder} instance for chain-building a {@code ContentCache}.
+     */
+    public static Builder builder(final ConfluenceClient client) {
+        return new Builder(Objects.requireNonNull(client));
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code ContentCache}.
+     */
+    public static class Builder {
+        private final ConfluenceClient client;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+        private boolean compressBodies;
+        private Path file;
+
+        // prevent direct instantiation by external classes.
+        private Builder(final ConfluenceClient client) {
+            this.client = client;
+        }
+
+        /**
+         * @param maxEntries the most pieces of content to cache.
+         * @return {@code this}.
+         */
+        public Builder maxEntries(final int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be at least 1.");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param maxBodyBytes the most bytes of bodies to cache, encoded as UTF-8; memory
+         *                     is reserved as it is needed, in segments of 32MB, up to
+         *                     this limit.
+         * @return {@code this}.
+         */
+        public Builder maxBodyBytes(final long maxBodyBytes) {
+            if (maxBodyBytes < 1) {
+                throw new IllegalArgumentException("maxBodyBytes must be positive.");
+            }
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+
+        /**
+         * @param blockSize the size of the blocks bodies are stored in; a body wastes
+         *                  half a block on average.
+         * @return {@code this}.
+         */
+        public Builder blockSize(final int blockSize) {
+            if (blockSize < 64 || blockSize > 1 << 20) {
+                throw new IllegalArgumentException("blockSize must be between 64 bytes and 1MB.");
+            }
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * @param compressBodies whether to hold bodies deflated, and inflate them when
+         *                       read; off by default. {@code maxBodyBytes} then limits
+         *                       the compressed size.
+         * @return {@code this}.
+         * @see CompressedText
+         */
+        public Builder compressBodies(final boolean compressBodies) {
+            this.compressBodies = compressBodies;
+            return this;
+        }
+
+        /**
+         * Holds the bodies in a memory-mapped file, rather than in direct memory, so that
+         * the operating system can page them out. The file is created if necessary; its
+         * contents are not reused by a later cache.
+         *
+         * @param file the file.
+         * @return {@code this}.
+         */
+        public Builder memoryMapped(final Path file) {
+            this.file = Objects.requireNonNull(file);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code ContentCache}.
+         */
+        public ContentCache build() {
+            return new ContentCache(this);
+        }
+    }
+
+}
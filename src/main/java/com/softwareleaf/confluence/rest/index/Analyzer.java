@@ -0,0 +1,78 @@
+package com.softwareleaf.confluence.rest.index;
+
+import com.softwareleaf.confluence.rest.macro.StorageTokenizer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into the terms that are indexed and searched for: maximal runs of letters
+ * and digits, folded to lower case.
+ *
+ * @author Jonathon Hope
+ */
+final class Analyzer {
+
+    private Analyzer() {
+        // no instantiation
+    }
+
+    /**
+     * @param text the text to split.
+     * @return the terms of {@code text}, in order.
+     */
+    static List<String> terms(final CharSequence text) {
+        final List<String> terms = new ArrayList<>();
+        tokenize(text, terms::add);
+        return terms;
+    }
+
+    /**
+     * Passes each term of {@code text}, in order, to {@code consumer}.
+     *
+     * @param text     the text to split.
+     * @param consumer receives the terms.
+     */
+    static void tokenize(final CharSequence text, final Consumer<String> consumer) {
+        final StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                consumer.accept(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            consumer.accept(term.toString());
+        }
+    }
+
+    /**
+     * Passes each term of the text of storage format {@code markup}, in order, to
+     * {@code consumer}; tags are dropped, and entities decoded.
+     *
+     * @param markup   storage format markup.
+     * @param consumer receives the terms.
+     */
+    static void tokenizeMarkup(final String markup, final Consumer<String> consumer) {
+        final StorageTokenizer tokenizer = new StorageTokenizer(new StringReader(markup));
+        try {
+            StorageTokenizer.TokenType type;
+            while ((type = tokenizer.next()) != null) {
+                if (type == StorageTokenizer.TokenType.TEXT || type == StorageTokenizer.TokenType.CDATA) {
+                    tokenize(tokenizer.getText(), consumer);
+                }
+            }
+        } catch (IOException e) {
+            // not thrown by a StringReader.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
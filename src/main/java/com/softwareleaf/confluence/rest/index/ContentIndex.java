@@ -0,0 +1,305 @@
+package com.softwareleaf.confluence.rest.index;
+
+import com.softwareleaf.confluence.rest.model.Content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory, positional inverted index over the titles and bodies of {@code Content},
+ * for answering searches over mirrored spaces locally rather than with a round trip to
+ * the server.
+ * <p>Bodies are indexed as text: tags are dropped and entities decoded. Content is added
+ * incrementally, typically as it is streamed from the server; adding content with an id
+ * that is already indexed replaces it. Replaced and removed content is only marked as
+ * deleted, and the postings lists are compacted once deleted content outnumbers live content.
+ * <p>Any number of threads may search at once; adding and removing content blocks searches
+ * only while the postings lists are appended to, since bodies are analysed beforehand.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     ContentIndex index = new ContentIndex();
+ *     index.addAll(client.streamSpaceContent("DEV"));
+ *     List<String> ids = index.search(Query.builder().phrase("release notes").space("DEV").build());
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public class ContentIndex {
+    /**
+     * The gap between the positions of the last term of the title and the first term of
+     * the body, so that a phrase cannot span the two.
+     */
+    private static final int FIELD_GAP = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * The postings list of each term.
+     */
+    private final Map<String, Postings> postings = new HashMap<>();
+    /**
+     * The document number of the live version of each piece of content, by content id.
+     */
+    private final Map<String, Integer> documents = new HashMap<>();
+    // per document number: the content id and space key.
+    private String[] ids = new String[64];
+    private String[] spaces = new String[64];
+    private int documentCount;
+    /**
+     * The document numbers of replaced and removed content.
+     */
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    /**
+     * Indexes a piece of content, in the space given by {@code content.getSpace()}.
+     *
+     * @param content the content, which should have its {@literal body.storage} expanded.
+     * @throws NullPointerException if {@code content} has no id.
+     */
+    public void add(final Content content) {
+        add(content, content.getSpace() == null ? null : content.getSpace().getKey());
+    }
+
+    /**
+     * Indexes a piece of content, replacing any content with the same id.
+     *
+     * @param content  the content, which should have its {@literal body.storage} expanded.
+     * @param spaceKey the key of the space the content is in; may be {@code null}.
+     * @throws NullPointerException if {@code content} has no id.
+     */
+    public void add(final Content content, final String spaceKey) {
+        Objects.requireNonNull(content.getId(), "content must have an id");
+        final Map<String, PositionList> analyzed = analyze(content);
+        lock.writeLock().lock();
+        try {
+            delete(content.getId());
+            final int doc = documentCount++;
+            if (doc == ids.length) {
+                ids = Arrays.copyOf(ids, doc * 2);
+                spaces = Arrays.copyOf(spaces, doc * 2);
+            }
+            ids[doc] = content.getId();
+            spaces[doc] = spaceKey;
+            documents.put(content.getId(), doc);
+            for (Map.Entry<String, PositionList> entry : analyzed.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new Postings())
+                        .add(doc, entry.getValue().positions, entry.getValue().size);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes every piece of content in {@code contents}, as they are streamed.
+     *
+     * @param contents the content to index.
+     * @see com.softwareleaf.confluence.rest.ConfluenceClient#streamSpaceContent(String)
+     */
+    public void addAll(final Stream<Content> contents) {
+        contents.forEach(this::add);
+    }
+
+    /**
+     * Removes a piece of content from the index.
+     *
+     * @param id the id of the content.
+     * @return {@code true} if the content was indexed.
+     */
+    public boolean remove(final String id) {
+        lock.writeLock().lock();
+        try {
+            return delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of pieces of content indexed.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the content matching every clause of {@code query}.
+     *
+     * @param query the query.
+     * @return the ids of the matching content, in the order in which it was indexed.
+     */
+    public List<String> search(final Query query) {
+        if (query.isUnsatisfiable()) {
+            // a term was given, but none survived analysis; this is not a query for everything.
+            return Collections.emptyList();
+        }
+        final List<String> required = new ArrayList<>(query.getTerms());
+        query.getPhrases().forEach(required::addAll);
+        lock.readLock().lock();
+        try {
+            if (required.isEmpty()) {
+                return scan(query);
+            }
+            final Map<String, Postings.Cursor> cursors = new LinkedHashMap<>();
+            for (String term : required) {
+                final Postings list = postings.get(term);
+                if (list == null) {
+                    return Collections.emptyList();
+                }
+                cursors.computeIfAbsent(term, t -> list.cursor());
+            }
+            // lead with the rarest term, so that the fewest documents are considered.
+            final List<Postings.Cursor> ordered = new ArrayList<>(cursors.values());
+            ordered.sort(Comparator.comparingInt(Postings.Cursor::documentFrequency));
+            final Postings.Cursor lead = ordered.get(0);
+
+            final List<String> results = new ArrayList<>();
+            int doc = lead.next();
+            candidates:
+            while (doc != Postings.NO_MORE_DOCS) {
+                for (int i = 1; i < ordered.size(); i++) {
+                    final int other = ordered.get(i).advance(doc);
+                    if (other != doc) {
+                        doc = lead.advance(other);
+                        continue candidates;
+                    }
+                }
+                if (matches(doc, query, cursors)) {
+                    results.add(ids[doc]);
+                    if (results.size() == query.getLimit()) {
+                        break;
+                    }
+                }
+                doc = lead.next();
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the postings of replaced and removed content. This happens automatically
+     * once deleted content outnumbers live content.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            postings.replaceAll((term, list) -> list.without(deleted));
+            postings.values().removeIf(Objects::isNull);
+            // the document numbers are not reused, but the strings they refer to can be freed.
+            for (int doc = deleted.nextSetBit(0); doc >= 0; doc = deleted.nextSetBit(doc + 1)) {
+                ids[doc] = null;
+                spaces[doc] = null;
+            }
+            deletedCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // marks the live document of the given content as deleted; the write lock must be held.
+    private boolean delete(final String id) {
+        final Integer doc = documents.remove(id);
+        if (doc == null) {
+            return false;
+        }
+        deleted.set(doc);
+        if (++deletedCount > documents.size() && deletedCount > 1024) {
+            compact();
+        }
+        return true;
+    }
+
+    // used when a query has no terms: every live document in the requested spaces.
+    private List<String> scan(final Query query) {
+        final List<String> results = new ArrayList<>();
+        for (int doc = 0; doc < documentCount && results.size() < query.getLimit(); doc++) {
+            if (!deleted.get(doc) && inSpace(doc, query)) {
+                results.add(ids[doc]);
+            }
+        }
+        return results;
+    }
+
+    private boolean matches(final int doc, final Query query, final Map<String, Postings.Cursor> cursors) {
+        if (deleted.get(doc) || !inSpace(doc, query)) {
+            return false;
+        }
+        for (List<String> phrase : query.getPhrases()) {
+            if (!containsPhrase(phrase, cursors)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean inSpace(final int doc, final Query query) {
+        return query.getSpaces().isEmpty() || query.getSpaces().contains(spaces[doc]);
+    }
+
+    // all cursors are positioned on the same document.
+    private static boolean containsPhrase(final List<String> phrase, final Map<String, Postings.Cursor> cursors) {
+        final Postings.Cursor first = cursors.get(phrase.get(0));
+        positions:
+        for (int i = 0; i < first.frequency(); i++) {
+            final int start = first.position(i);
+            for (int offset = 1; offset < phrase.size(); offset++) {
+                if (!cursors.get(phrase.get(offset)).hasPosition(start + offset)) {
+                    continue positions;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // collects the positions of each term of the title and body.
+    private static Map<String, PositionList> analyze(final Content content) {
+        final Map<String, PositionList> terms = new HashMap<>();
+        final int[] position = {0};
+        if (content.getTitle() != null) {
+            Analyzer.tokenize(content.getTitle(),
+                    term -> terms.computeIfAbsent(term, t -> new PositionList()).add(position[0]++));
+        }
+        position[0] += FIELD_GAP;
+        if (content.getBody() != null && content.getBody().getStorage() != null
+                && content.getBody().getStorage().getValue() != null) {
+            Analyzer.tokenizeMarkup(content.getBody().getStorage().getValue(),
+                    term -> terms.computeIfAbsent(term, t -> new PositionList()).add(position[0]++));
+        }
+        return terms;
+    }
+
+    /**
+     * A growable list of positions.
+     */
+    private static final class PositionList {
+        private int[] positions = new int[4];
+        private int size;
+
+        void add(final int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+}
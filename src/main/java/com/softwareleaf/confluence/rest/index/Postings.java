@@ -0,0 +1,134 @@
+package com.softwareleaf.confluence.rest.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The postings list of a single term: the documents it occurs in, in ascending order,
+ * and its positions within each.
+ * <p>The list is stored in a single {@code int[]} as a sequence of entries of the form
+ * {@code doc, frequency, position...}, which avoids an object per document.
+ *
+ * @author Jonathon Hope
+ */
+final class Postings {
+
+    /**
+     * Returned by a {@link Cursor} once it has moved past the last document.
+     */
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private int[] data = new int[8];
+    private int size;
+    private int documentFrequency;
+
+    /**
+     * Appends the positions of the term in {@code doc}, which must be greater than any
+     * document already added.
+     *
+     * @param doc       the document number.
+     * @param positions the positions of the term in the document, in ascending order.
+     * @param count     the number of positions.
+     */
+    void add(final int doc, final int[] positions, final int count) {
+        final int required = size + 2 + count;
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+        }
+        data[size++] = doc;
+        data[size++] = count;
+        System.arraycopy(positions, 0, data, size, count);
+        size += count;
+        documentFrequency++;
+    }
+
+    /**
+     * @param deleted the documents to drop.
+     * @return a copy of these postings without the deleted documents, or {@code null} if
+     * no documents remain.
+     */
+    Postings without(final BitSet deleted) {
+        final Postings copy = new Postings();
+        for (int offset = 0; offset < size; offset += 2 + data[offset + 1]) {
+            if (!deleted.get(data[offset])) {
+                copy.add(data[offset], Arrays.copyOfRange(data, offset + 2, offset + 2 + data[offset + 1]),
+                        data[offset + 1]);
+            }
+        }
+        if (copy.documentFrequency == 0) {
+            return null;
+        }
+        copy.data = Arrays.copyOf(copy.data, copy.size);
+        return copy;
+    }
+
+    /**
+     * @return a new cursor, positioned before the first document.
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates over the documents of the postings list, in ascending order.
+     */
+    final class Cursor {
+        private int offset = -1;
+        private int doc = -1;
+
+        /**
+         * @return the number of documents in the postings list, including deleted documents.
+         */
+        int documentFrequency() {
+            return documentFrequency;
+        }
+
+        /**
+         * @return the next document, or {@link #NO_MORE_DOCS}.
+         */
+        int next() {
+            if (doc == NO_MORE_DOCS) {
+                return doc;
+            }
+            offset = offset < 0 ? 0 : offset + 2 + data[offset + 1];
+            doc = offset < size ? data[offset] : NO_MORE_DOCS;
+            return doc;
+        }
+
+        /**
+         * @param target the document to advance to.
+         * @return the first document greater than or equal to {@code target}, or {@link #NO_MORE_DOCS}.
+         */
+        int advance(final int target) {
+            while (doc < target) {
+                next();
+            }
+            return doc;
+        }
+
+        /**
+         * @param position a position.
+         * @return {@code true} if the term occurs at {@code position} in the current document.
+         */
+        boolean hasPosition(final int position) {
+            final int from = offset + 2;
+            return Arrays.binarySearch(data, from, from + data[offset + 1], position) >= 0;
+        }
+
+        /**
+         * @return the number of positions in the current document.
+         */
+        int frequency() {
+            return data[offset + 1];
+        }
+
+        /**
+         * @param index the index of the position, less than {@link #frequency()}.
+         * @return the position.
+         */
+        int position(final int index) {
+            return data[offset + 2 + index];
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.softwareleaf.confluence.rest.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A query against a {@link ContentIndex}. Every clause must match: content is returned
+ * only if it contains all of the terms and phrases, and is in one of the spaces, if any
+ * are given.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     Query query = Query.builder()
+ *          .term("release")
+ *          .phrase("known issues")
+ *          .space("DEV")
+ *          .limit(20)
+ *          .build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public final class Query {
+
+    /**
+     * The terms that must occur anywhere in the title or body.
+     */
+    private final List<String> terms;
+    /**
+     * The phrases, each a list of terms that must occur consecutively.
+     */
+    private final List<List<String>> phrases;
+    /**
+     * The keys of the spaces the content must be in; empty for any space.
+     */
+    private final Set<String> spaces;
+    /**
+     * The maximum number of results.
+     */
+    private final int limit;
+    /**
+     * {@code true} if a term or phrase was given that has no terms once analyzed, such as
+     * one made only of punctuation, and which so can match nothing.
+     */
+    private final boolean unsatisfiable;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private Query(final Builder builder) {
+        this.terms = Collections.unmodifiableList(new ArrayList<>(builder.terms));
+        this.phrases = Collections.unmodifiableList(new ArrayList<>(builder.phrases));
+        this.spaces = Collections.unmodifiableSet(new LinkedHashSet<>(builder.spaces));
+        this.limit = builder.limit;
+        this.unsatisfiable = builder.unsatisfiable;
+    }
+
+    List<String> getTerms() {
+        return terms;
+    }
+
+    List<List<String>> getPhrases() {
+        return phrases;
+    }
+
+    Set<String> getSpaces() {
+        return spaces;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    boolean isUnsatisfiable() {
+        return unsatisfiable;
+    }
+
+    @Override
+    public String toString() {
+        return "Query{terms=" + terms + ", phrases=" + phrases + ", spaces=" + spaces + ", limit=" + limit + '}';
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @return a {@code Builder} instance for chain-building a {@code Query}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code Query}.
+     */
+    public static class Builder {
+        private final List<String> terms = new ArrayList<>();
+        private final List<List<String>> phrases = new ArrayList<>();
+        private final Set<String> spaces = new LinkedHashSet<>();
+        private int limit = Integer.MAX_VALUE;
+        private boolean unsatisfiable;
+
+        // prevent direct instantiation by external classes.
+        private Builder() {
+        }
+
+        /**
+         * Requires a term. Matching ignores case; a term containing punctuation, such as
+         * {@literal "e-mail"}, is treated as a phrase.
+         *
+         * @param term the term.
+         * @return {@code this}.
+         */
+        public Builder term(final String term) {
+            return phrase(term);
+        }
+
+        /**
+         * Requires the terms of {@code phrase} to occur consecutively, ignoring case and
+         * punctuation. A phrase with no terms, such as one made only of punctuation,
+         * matches nothing.
+         *
+         * @param phrase the phrase.
+         * @return {@code this}.
+         */
+        public Builder phrase(final String phrase) {
+            final List<String> analyzed = Analyzer.terms(phrase);
+            if (analyzed.size() == 1) {
+                terms.add(analyzed.get(0));
+            } else if (analyzed.size() > 1) {
+                phrases.add(analyzed);
+            } else {
+                unsatisfiable = true;
+            }
+            return this;
+        }
+
+        /**
+         * Restricts the results to a space; may be given more than once to allow
+         * several spaces.
+         *
+         * @param spaceKey the key of the space.
+         * @return {@code this}.
+         */
+        public Builder space(final String spaceKey) {
+            spaces.add(spaceKey);
+            return this;
+        }
+
+        /**
+         * @param limit the maximum number of results; unlimited by default.
+         * @return {@code this}.
+         */
+        public Builder limit(final int limit) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be at least 1.");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code Query}.
+         */
+        public Query build() {
+            return new Query(this);
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+package com.softwareleaf.confluence.rest.index;
+
+import com.softwareleaf.confluence.rest.ConfluenceClient;
+import com.softwareleaf.confluence.rest.model.Content;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resolves the titles of the pages of a single space to their ids locally, in place of a
+ * call to {@link ConfluenceClient#getContentBySpaceKeyAndTitle(String, String)} per lookup.
+ * Titles are matched ignoring case, as confluence does.
+ * <p>The index is built from a CQL search that expands nothing, so only the id and title of
+ * each page is transferred, and is then kept up to date by {@link #sync()}, which fetches
+ * only the pages modified since the previous build or sync. Deleted pages are only
+ * forgotten by a {@link #rebuild()}, or by {@link #remove(String)} when the caller deletes
+ * them itself.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     SpaceTitleIndex titles = SpaceTitleIndex.builder(client, "DEV").build();
+ *     titles.rebuild();
+ *     ...
+ *     titles.sync();
+ *     Optional<String> parentId = titles.getId("Release Notes");
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public class SpaceTitleIndex {
+    /**
+     * The format of dates in CQL queries.
+     */
+    private static final DateTimeFormatter CQL_DATE = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
+    /**
+     * How far before the previous sync a sync looks for modified pages, to allow for
+     * differences between the local and server clocks, and the minute precision of CQL dates.
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(10);
+
+    private final ConfluenceClient client;
+    private final String spaceKey;
+    /**
+     * The CQL clause that selects the pages of the space.
+     */
+    private final String pagesOfSpace;
+    /**
+     * The time zone in which the server interprets CQL dates.
+     */
+    private final ZoneId serverZone;
+    private final Clock clock;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TitleTable table = new TitleTable();
+    /**
+     * When the latest build or sync started; {@code null} before the first build.
+     */
+    private Instant lastSync;
+    /**
+     * The number of rebuilds in progress.
+     */
+    private int rebuilding;
+    /**
+     * The pages put or removed (a {@code null} title) by the caller since a rebuild in
+     * progress started, to apply to the rebuilt table; {@code null} while none is.
+     */
+    private Map<String, String> edits;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private SpaceTitleIndex(final Builder builder) {
+        this.client = builder.client;
+        this.spaceKey = builder.spaceKey;
+        this.pagesOfSpace = "space = " + quote(spaceKey) + " and type = page";
+        this.serverZone = builder.serverZone;
+        this.clock = builder.clock;
+    }
+
+    /**
+     * @return the key of the space indexed.
+     */
+    public String getSpaceKey() {
+        return spaceKey;
+    }
+
+    /**
+     * @param title the title of a page, in any case.
+     * @return the id of the page, if it is known.
+     */
+    public Optional<String> getId(final String title) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(table.getId(title));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id the id of a page.
+     * @return the title of the page, if it is known.
+     */
+    public Optional<String> getTitle(final String id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(table.getTitle(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of pages indexed.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return table.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a page, for example one just created or renamed by the caller, so that it
+     * can be resolved before the next sync. A rebuild in progress records it too, as it does
+     * the pages fetched by a sync.
+     *
+     * @param id    the id of the page.
+     * @param title the title of the page.
+     */
+    public void put(final String id, final String title) {
+        lock.writeLock().lock();
+        try {
+            table.put(id, title);
+            if (edits != null) {
+                edits.put(id, title);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets a page, for example one just deleted by the caller. A rebuild in progress
+     * forgets it too.
+     *
+     * @param id the id of the page.
+     * @return {@code true} if the page was indexed.
+     */
+    public boolean remove(final String id) {
+        lock.writeLock().lock();
+        try {
+            if (edits != null) {
+                edits.put(id, null);
+            }
+            return table.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from a listing of every page in the space. Lookups continue to
+     * be answered from the previous index until the new one is complete; pages put or
+     * removed, or synced, meanwhile are applied to both.
+     */
+    public void rebuild() {
+        final Instant started = clock.instant();
+        lock.writeLock().lock();
+        try {
+            if (rebuilding++ == 0) {
+                edits = new LinkedHashMap<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TitleTable rebuilt = null;
+        try {
+            final TitleTable listed = new TitleTable();
+            client.searchContent(pagesOfSpace).forEach(content -> putContent(listed, content));
+            rebuilt = listed;
+        } finally {
+            endRebuild(rebuilt, started);
+        }
+    }
+
+    // replaces the table with a rebuilt one, if given, once the caller's edits made during
+    // the rebuild are applied to it; they would otherwise be lost.
+    private void endRebuild(final TitleTable rebuilt, final Instant started) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilt != null) {
+                for (Map.Entry<String, String> edit : edits.entrySet()) {
+                    if (edit.getValue() == null) {
+                        rebuilt.remove(edit.getKey());
+                    } else {
+                        rebuilt.put(edit.getKey(), edit.getValue());
+                    }
+                }
+                table = rebuilt;
+                lastSync = started;
+            }
+            if (--rebuilding == 0) {
+                edits = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the index with the pages created, or modified, since the previous build or
+     * sync; the index is rebuilt if it has never been built.
+     *
+     * @return the number of pages fetched.
+     */
+    public int sync() {
+        final Instant since;
+        lock.readLock().lock();
+        try {
+            since = lastSync;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (since == null) {
+            rebuild();
+            return size();
+        }
+        final Instant started = clock.instant();
+        final String from = CQL_DATE.format(since.minus(SYNC_OVERLAP).atZone(serverZone));
+        final int[] fetched = {0};
+        client.searchContent(pagesOfSpace + " and lastmodified >= " + quote(from))
+                .forEach(content -> {
+                    fetched[0]++;
+                    if (content.getId() != null && content.getTitle() != null) {
+                        put(content.getId(), content.getTitle());
+                    }
+                });
+        lock.writeLock().lock();
+        try {
+            lastSync = started;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return fetched[0];
+    }
+
+    // a CQL string literal.
+    private static String quote(final String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static void putContent(final TitleTable table, final Content content) {
+        if (content.getId() != null && content.getTitle() != null) {
+            table.put(content.getId(), content.getTitle());
+        }
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param client   the client used to list the pages of the space.
+     * @param spaceKey the key of the space to index.
+     * @return a {@code Builder} instance for chain-building a {@code SpaceTitleIndex}.
+     */
+    public static Builder builder(final ConfluenceClient client, final String spaceKey) {
+        return new Builder(client, spaceKey);
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code SpaceTitleIndex}.
+     */
+    public static class Builder {
+        private final ConfluenceClient client;
+        private final String spaceKey;
+        private ZoneId serverZone = ZoneOffset.UTC;
+        private Clock clock = Clock.systemUTC();
+
+        // prevent direct instantiation by external classes.
+        private Builder(final ConfluenceClient client, final String spaceKey) {
+            this.client = Objects.requireNonNull(client);
+            this.spaceKey = Objects.requireNonNull(spaceKey);
+        }
+
+        /**
+         * Sets the time zone in which the server interprets the dates of CQL queries; that
+         * of the user the client authenticates as. Defaults to UTC.
+         *
+         * @param serverZone the time zone.
+         * @return {@code this}.
+         */
+        public Builder serverZone(final ZoneId serverZone) {
+            this.serverZone = Objects.requireNonNull(serverZone);
+            return this;
+        }
+
+        /**
+         * Sets the clock used to time syncs; intended for testing.
+         *
+         * @param clock the clock.
+         * @return {@code this}.
+         */
+        public Builder clock(final Clock clock) {
+            this.clock = Objects.requireNonNull(clock);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code SpaceTitleIndex}.
+         */
+        public SpaceTitleIndex build() {
+            return new SpaceTitleIndex(this);
+        }
+    }
+
+}
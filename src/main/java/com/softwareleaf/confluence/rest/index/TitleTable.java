@@ -0,0 +1,286 @@
+package com.softwareleaf.confluence.rest.index;
+
+import java.util.Arrays;
+
+/**
+ * A compact map between content ids and titles, in which titles are compared ignoring case.
+ * <p>The characters of every title and id are stored one after another in a single
+ * {@code char[]} arena, and each entry is a handful of {@code int}s pointing into it.
+ * Entries are found through two open addressing hash tables, one keyed by title and one by
+ * id, whose slots hold entry numbers; so the whole table is a few arrays, rather than two
+ * {@code String}s and a map entry per page.
+ * <p>This class is not thread safe.
+ *
+ * @author Jonathon Hope
+ */
+final class TitleTable {
+
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+
+    private char[] arena = new char[1024];
+    private int arenaSize;
+    /**
+     * The number of characters in the arena that belong to removed entries.
+     */
+    private int garbage;
+
+    // per entry: the offset of the title in the arena, followed by the id; -1 if removed.
+    private int[] offsets = new int[64];
+    private int[] titleLengths = new int[64];
+    private int[] idLengths = new int[64];
+    private int[] titleHashes = new int[64];
+    private int entryCount;
+    private int size;
+
+    // slots hold an entry number plus one, EMPTY or REMOVED.
+    private int[] byTitle = new int[128];
+    private int[] byId = new int[128];
+    private int usedSlots;
+
+    /**
+     * @return the number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param title a title, in any case.
+     * @return the id of the content with the title, or {@code null}.
+     */
+    String getId(final CharSequence title) {
+        final int entry = findByTitle(title, foldedHash(title));
+        return entry < 0 ? null : new String(arena, offsets[entry] + titleLengths[entry], idLengths[entry]);
+    }
+
+    /**
+     * @param id a content id.
+     * @return the title of the content, or {@code null}.
+     */
+    String getTitle(final String id) {
+        final int entry = findById(id, id.hashCode());
+        return entry < 0 ? null : new String(arena, offsets[entry], titleLengths[entry]);
+    }
+
+    /**
+     * Records the title of a piece of content, replacing its previous title and any other
+     * content with the same title.
+     *
+     * @param id    the id of the content.
+     * @param title the title of the content.
+     */
+    void put(final String id, final String title) {
+        final int titleHash = foldedHash(title);
+        final int existing = findById(id, id.hashCode());
+        if (existing >= 0 && titleLengths[existing] == title.length()
+                && new String(arena, offsets[existing], titleLengths[existing]).equals(title)) {
+            return;
+        }
+        if (existing >= 0) {
+            removeEntry(existing);
+        }
+        final int sameTitle = findByTitle(title, titleHash);
+        if (sameTitle >= 0) {
+            removeEntry(sameTitle);
+        }
+        if ((usedSlots + 1) * 2 > byTitle.length) {
+            rehash(size * 4 > byTitle.length ? byTitle.length * 2 : byTitle.length);
+        }
+        final int entry = append(id, title, titleHash);
+        insert(byTitle, titleHash, entry);
+        insert(byId, id.hashCode(), entry);
+        usedSlots++;
+        size++;
+    }
+
+    /**
+     * @param id the id of the content to forget.
+     * @return {@code true} if there was an entry for the content.
+     */
+    boolean remove(final String id) {
+        final int entry = findById(id, id.hashCode());
+        if (entry < 0) {
+            return false;
+        }
+        removeEntry(entry);
+        return true;
+    }
+
+    // appends the characters of the entry to the arena, compacting it first if worthwhile.
+    private int append(final String id, final String title, final int titleHash) {
+        if (garbage > arenaSize / 2 && garbage > 4096) {
+            compact();
+        }
+        final int length = title.length() + id.length();
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + length, arena.length * 2));
+        }
+        if (entryCount == offsets.length) {
+            final int capacity = entryCount * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+            idLengths = Arrays.copyOf(idLengths, capacity);
+            titleHashes = Arrays.copyOf(titleHashes, capacity);
+        }
+        final int entry = entryCount++;
+        offsets[entry] = arenaSize;
+        titleLengths[entry] = title.length();
+        idLengths[entry] = id.length();
+        titleHashes[entry] = titleHash;
+        title.getChars(0, title.length(), arena, arenaSize);
+        id.getChars(0, id.length(), arena, arenaSize + title.length());
+        arenaSize += length;
+        return entry;
+    }
+
+    private void removeEntry(final int entry) {
+        tombstone(byTitle, titleHashes[entry], entry);
+        tombstone(byId, idHash(entry), entry);
+        garbage += titleLengths[entry] + idLengths[entry];
+        offsets[entry] = -1;
+        size--;
+    }
+
+    private int findByTitle(final CharSequence title, final int hash) {
+        final int mask = byTitle.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            final int slot = byTitle[i];
+            if (slot == EMPTY) {
+                return -1;
+            }
+            final int entry = slot - 1;
+            if (slot != REMOVED && titleHashes[entry] == hash && titleEquals(entry, title)) {
+                return entry;
+            }
+        }
+    }
+
+    private int findById(final String id, final int hash) {
+        final int mask = byId.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            final int slot = byId[i];
+            if (slot == EMPTY) {
+                return -1;
+            }
+            final int entry = slot - 1;
+            if (slot != REMOVED && idEquals(entry, id)) {
+                return entry;
+            }
+        }
+    }
+
+    private static void insert(final int[] table, final int hash, final int entry) {
+        final int mask = table.length - 1;
+        int i = spread(hash) & mask;
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry + 1;
+    }
+
+    private static void tombstone(final int[] table, final int hash, final int entry) {
+        final int mask = table.length - 1;
+        for (int i = spread(hash) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            if (table[i] == entry + 1) {
+                table[i] = REMOVED;
+                return;
+            }
+        }
+    }
+
+    // rebuilds both tables with the given capacity, dropping the removed slots.
+    private void rehash(final int capacity) {
+        byTitle = new int[capacity];
+        byId = new int[capacity];
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (offsets[entry] >= 0) {
+                insert(byTitle, titleHashes[entry], entry);
+                insert(byId, idHash(entry), entry);
+            }
+        }
+        usedSlots = size;
+    }
+
+    // moves the live entries to the front of the arena and of the entry arrays.
+    private void compact() {
+        final char[] compacted = new char[Math.max(1024, (arenaSize - garbage) * 2)];
+        int position = 0;
+        int live = 0;
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (offsets[entry] < 0) {
+                continue;
+            }
+            final int length = titleLengths[entry] + idLengths[entry];
+            System.arraycopy(arena, offsets[entry], compacted, position, length);
+            offsets[live] = position;
+            titleLengths[live] = titleLengths[entry];
+            idLengths[live] = idLengths[entry];
+            titleHashes[live] = titleHashes[entry];
+            position += length;
+            live++;
+        }
+        arena = compacted;
+        arenaSize = position;
+        garbage = 0;
+        entryCount = live;
+        rehash(byTitle.length);
+    }
+
+    private boolean titleEquals(final int entry, final CharSequence title) {
+        final int length = titleLengths[entry];
+        if (length != title.length()) {
+            return false;
+        }
+        final int offset = offsets[entry];
+        for (int i = 0; i < length; i++) {
+            if (fold(arena[offset + i]) != fold(title.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean idEquals(final int entry, final String id) {
+        final int length = idLengths[entry];
+        if (length != id.length()) {
+            return false;
+        }
+        final int offset = offsets[entry] + titleLengths[entry];
+        for (int i = 0; i < length; i++) {
+            if (arena[offset + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the same as String.hashCode() of the id.
+    private int idHash(final int entry) {
+        final int offset = offsets[entry] + titleLengths[entry];
+        int hash = 0;
+        for (int i = 0; i < idLengths[entry]; i++) {
+            hash = 31 * hash + arena[offset + i];
+        }
+        return hash;
+    }
+
+    private static int foldedHash(final CharSequence title) {
+        int hash = 0;
+        for (int i = 0; i < title.length(); i++) {
+            hash = 31 * hash + fold(title.charAt(i));
+        }
+        return hash;
+    }
+
+    // the same folding as String.equalsIgnoreCase.
+    private static char fold(final char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -2,7 +2,9 @@ package com.softwareleaf.confluence.rest.macro;
 
 import com.softwareleaf.confluence.rest.util.StringUtils;
 
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -12,16 +14,20 @@ import java.util.Map;
  * @see <a href="https://confluence.atlassian.com/display/DOC/Code+Block+Macro">
  * Confluence Page describing the Macro</a>
  */
-public class CodeBlockMacro {
+public class CodeBlockMacro implements StorageMacro {
 
     /**
      * Stores the parameters of this code block macro.
      */
-    private EnumMap<Parameters, String> parameters;
+    private final EnumMap<Parameters, String> parameters;
     /**
      * The code of this CodeBlockMacro.
      */
-    private String body;
+    private final String body;
+    /**
+     * The opening tag and parameters of this macro, rendered once when it is built.
+     */
+    private final String head;
 
     /**
      * Parameters are options that you can set to control the content or format of
@@ -71,10 +77,16 @@ public class CodeBlockMacro {
          */
         TITLE;
 
+        private final String value;
+
+        Parameters() {
+            // replace the underscore with a slash and print as lower case
+            this.value = name().replace("_", "/").toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            // replace the underscore with a slash and print as lower case
-            return name().replace("_", "/").toLowerCase();
+            return value;
         }
 
     }
@@ -133,9 +145,15 @@ public class CodeBlockMacro {
         ECLIPSE,
         CONFLUENCE;
 
+        private final String value;
+
+        Themes() {
+            this.value = StringUtils.convertToUpperCamel(name());
+        }
+
         @Override
         public String toString() {
-            return StringUtils.convertToUpperCamel(super.toString());
+            return value;
         }
     }
 
@@ -146,8 +164,63 @@ public class CodeBlockMacro {
      * @see CodeBlockMacro.Builder
      */
     protected CodeBlockMacro(final Builder builder) {
-        this.parameters = builder.parameters;
-        this.body = builder.code;
+        this(builder.parameters, builder.code);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parameters the parameters of the macro, which are copied.
+     * @param body       the code.
+     * @see MacroElement#toMacro()
+     */
+    CodeBlockMacro(final EnumMap<Parameters, String> parameters, final String body) {
+        this.parameters = new EnumMap<>(parameters);
+        this.body = body;
+        final StorageWriter writer = new StorageWriter();
+        writer.startMacro("code");
+        for (Map.Entry<Parameters, String> entry : parameters.entrySet()) {
+            writer.parameter(entry.getKey().toString(), entry.getValue());
+        }
+        this.head = writer.toString();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param template the macro whose parameters, and rendered parameters, are shared.
+     * @param body     the code.
+     */
+    private CodeBlockMacro(final CodeBlockMacro template, final String body) {
+        this.parameters = template.parameters;
+        this.head = template.head;
+        this.body = body;
+    }
+
+    /**
+     * Creates a CodeBlockMacro with the same parameters as this one, but different code.
+     * The parameters are not rendered again, so this is the cheapest way to produce many
+     * code blocks with the same language, theme and so on.
+     *
+     * @param code the code contents, as a String.
+     * @return a new {@code CodeBlockMacro}.
+     */
+    public CodeBlockMacro withCode(final String code) {
+        return new CodeBlockMacro(this, code);
+    }
+
+    /**
+     * @return an unmodifiable view of the parameters of this macro.
+     */
+    public Map<Parameters, String> getParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * @return the code of this macro, or {@code null} if none was given.
+     */
+    public String getCode() {
+        return body;
     }
 
     /**
@@ -158,20 +231,22 @@ public class CodeBlockMacro {
      * Confluence Page describing the Macro</a>
      */
     public String toMarkup() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<ac:structured-macro ac:name=\"code\">");
-        for (Map.Entry<Parameters, String> entry : parameters.entrySet()) {
-            sb.append("<ac:parameter ac:name=\"");
-            sb.append(entry.getKey().toString());
-            sb.append("\">");
-            sb.append(entry.getValue());
-            sb.append("</ac:parameter>");
-        }
-        sb.append("<ac:plain-text-body>");
-        sb.append(body);
-        sb.append("</ac:plain-text-body>");
-        sb.append("</ac:structured-macro>");
-        return sb.toString();
+        final int bodyLength = body == null ? 0 : body.length();
+        final StorageWriter writer = new StorageWriter(new StringBuilder(head.length() + bodyLength + 96));
+        toMarkup(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes this CodeBlockMacro, in confluence markup form, to {@code writer}.
+     *
+     * @param writer the {@code StorageWriter} to write to.
+     */
+    @Override
+    public void toMarkup(final StorageWriter writer) {
+        writer.raw(head)
+                .plainTextBody(body == null ? "" : body)
+                .endMacro();
     }
 
     /**
@@ -302,8 +377,8 @@ public class CodeBlockMacro {
          * @return {@code this}.
          */
         public Builder code(String code) {
-            // escape code in <![CDATA[ ... ]]> wrapper
-            this.code = "<![CDATA[" + code + "]]>";
+            // escaped in a <![CDATA[ ... ]]> wrapper when written.
+            this.code = code;
             return this;
         }
     }
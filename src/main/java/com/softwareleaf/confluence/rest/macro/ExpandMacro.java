@@ -6,40 +6,101 @@ package com.softwareleaf.confluence.rest.macro;
  * @author Jonathon Hope
  * @see <a href="https://confluence.atlassian.com/display/DOC/Expand+Macro"> Expand Macro docs </a>
  */
-public class ExpandMacro {
+public class ExpandMacro implements StorageMacro {
 
     /**
      * The title of the expandable.
      */
-    private String title;
+    private final String title;
     /**
      * The contents of the expandable.
      */
-    private String body;
+    private final String body;
+    /**
+     * The opening tags and title of this macro, rendered once when it is built.
+     */
+    private final String head;
 
     /**
      * @param builder the builder factory to use.
      */
     protected ExpandMacro(final Builder builder) {
-        this.title = builder.title;
-        this.body = builder.body;
+        this(builder.title, builder.body);
+    }
+
+    /**
+     * @param title the title of the expandable, or {@code null}.
+     * @param body  the contents of the expandable.
+     * @see MacroElement#toMacro()
+     */
+    ExpandMacro(final String title, final String body) {
+        this.title = title;
+        this.body = body;
+        final StorageWriter writer = new StorageWriter();
+        writer.startMacro("expand");
+        if (title != null) {
+            writer.parameter("title", title);
+        }
+        writer.startRichTextBody();
+        this.head = writer.toString();
+    }
+
+    /**
+     * @param template the macro whose title, and rendered title, are shared.
+     * @param body     the contents of the expandable.
+     */
+    private ExpandMacro(final ExpandMacro template, final String body) {
+        this.title = template.title;
+        this.head = template.head;
+        this.body = body;
+    }
+
+    /**
+     * Creates an {@code ExpandMacro} with the same title as this one, but different contents.
+     *
+     * @param body the contents of the expandable.
+     * @return a new {@code ExpandMacro}.
+     */
+    public ExpandMacro withBody(final String body) {
+        return new ExpandMacro(this, body);
+    }
+
+    /**
+     * @return the title of the expandable, or {@code null}.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the contents of the expandable, as storage format markup.
+     */
+    public String getBody() {
+        return body;
     }
 
     /**
      * @return converts this instance to confluence markup.
      */
     public String toMarkup() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<ac:structured-macro ac:name=\"expand\">");
-        sb.append("<ac:parameter ac:name=\"title\">");
-        sb.append(title);
-        sb.append("</ac:parameter>");
-
-        sb.append("<ac:rich-text-body>");
-        sb.append(body);
-        sb.append("</ac:rich-text-body>");
-        sb.append("</ac:structured-macro>");
-        return sb.toString();
+        final StorageWriter writer = new StorageWriter();
+        toMarkup(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes this instance, in confluence markup form, to {@code writer}.
+     *
+     * @param writer the {@code StorageWriter} to write to.
+     */
+    @Override
+    public void toMarkup(final StorageWriter writer) {
+        writer.raw(head);
+        if (body != null) {
+            writer.raw(body);
+        }
+        writer.endRichTextBody()
+                .endMacro();
     }
 
     /**
@@ -6,7 +6,7 @@ package com.softwareleaf.confluence.rest.macro;
  * @author Jonathon Hope
  * @see <a href="https://confluence.atlassian.com/display/DOC/HTML+Macro">HTML Macro Documentation</a>
  */
-public class HtmlMacro {
+public class HtmlMacro implements StorageMacro {
     /**
      * The HTML source.
      */
@@ -22,20 +22,32 @@ public class HtmlMacro {
         this.content = content;
     }
 
+    /**
+     * @return the HTML source.
+     */
+    public String getContent() {
+        return content;
+    }
+
     /**
      * @return a structured macro (XML formatted) String, according to the confluence HTML Macro documentation.
      */
     public String toMarkup() {
-        final StringBuilder sb = new StringBuilder(content.length() + 140);
-        sb.append("<ac:structured-macro ac:name=\"html\">");
-        sb.append("<ac:plain-text-body>");
-        sb.append("<![CDATA[");
-        sb.append(content);
-        sb.append("]]");
-        sb.append("</ac:plain-text-body>");
-        sb.append("</ac:structured-macro>");
+        final StorageWriter writer = new StorageWriter(new StringBuilder(content.length() + 140));
+        toMarkup(writer);
+        return writer.toString();
+    }
 
-        return sb.toString();
+    /**
+     * Writes this macro, according to the confluence HTML Macro documentation, to {@code writer}.
+     *
+     * @param writer the {@code StorageWriter} to write to.
+     */
+    @Override
+    public void toMarkup(final StorageWriter writer) {
+        writer.startMacro("html")
+                .plainTextBody(content)
+                .endMacro();
     }
 
 }
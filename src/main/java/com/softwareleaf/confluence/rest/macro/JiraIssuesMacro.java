@@ -1,12 +1,15 @@
 package com.softwareleaf.confluence.rest.macro;
 
 import com.softwareleaf.confluence.rest.ConfluenceClient;
+import com.softwareleaf.confluence.rest.ConversionService;
 import com.softwareleaf.confluence.rest.model.Storage;
 import com.softwareleaf.confluence.rest.util.StringUtils;
 
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -17,7 +20,7 @@ import java.util.stream.Collectors;
  * @author Jonathon Hope
  * @see <a href="https://confluence.atlassian.com/display/DOC/JIRA+Issues+Macro">JIRA Issues Macro</a>
  */
-public class JiraIssuesMacro {
+public class JiraIssuesMacro implements StorageMacro {
 
     /**
      * Parameters are options that you can set to control the content or format of the macro output.
@@ -99,9 +102,15 @@ public class JiraIssuesMacro {
          */
         WIDTH;
 
+        private final String value;
+
+        Parameters() {
+            this.value = StringUtils.convertToUpperCamel(name());
+        }
+
         @Override
         public String toString() {
-            return StringUtils.convertToUpperCamel(name());
+            return value;
         }
 
     }
@@ -113,9 +122,15 @@ public class JiraIssuesMacro {
         STATIC,
         DYNAMIC;
 
+        private final String value;
+
+        RenderMode() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return name().toLowerCase();
+            return value;
         }
     }
 
@@ -126,9 +141,15 @@ public class JiraIssuesMacro {
         ON,
         OFF;
 
+        private final String value;
+
+        Cache() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return name().toLowerCase();
+            return value;
         }
     }
 
@@ -148,16 +169,30 @@ public class JiraIssuesMacro {
         UPDATED,
         DUE;
 
+        private final String value;
+
+        Columns() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return name().toLowerCase();
+            return value;
         }
     }
 
     /**
      * Stores the parameters of this code block macro.
      */
-    private EnumMap<Parameters, String> parameters;
+    private final EnumMap<Parameters, String> parameters;
+    /**
+     * The storage format markup of this macro, rendered once when it is built.
+     */
+    private final String markup;
+    /**
+     * The wiki markup of this macro, rendered once when it is built.
+     */
+    private final String wikiMarkup;
 
     /**
      * Constructor
@@ -165,7 +200,25 @@ public class JiraIssuesMacro {
      * @param builder the builder factory used to build this {@code JiraIssuesMacro}
      */
     protected JiraIssuesMacro(Builder builder) {
-        this.parameters = builder.parameters;
+        this(builder.parameters);
+    }
+
+    /**
+     * Constructor, used when the parameters have been obtained from existing markup.
+     *
+     * @param parameters the parameters of the macro.
+     */
+    JiraIssuesMacro(final EnumMap<Parameters, String> parameters) {
+        this.parameters = new EnumMap<>(parameters);
+        this.markup = renderMarkup();
+        this.wikiMarkup = renderWikiMarkup();
+    }
+
+    /**
+     * @return an unmodifiable view of the parameters of this macro.
+     */
+    public Map<Parameters, String> getParameters() {
+        return Collections.unmodifiableMap(parameters);
     }
 
     /**
@@ -174,6 +227,11 @@ public class JiraIssuesMacro {
      * @return a String conversion of the markup for this macro.
      */
     public String toWikiMarkup() {
+        return wikiMarkup;
+    }
+
+    // renders the wiki markup; see toWikiMarkup().
+    private String renderWikiMarkup() {
         StringBuilder sb = new StringBuilder();
         sb.append("{jiraissues:");
         for (Map.Entry<Parameters, String> entry : parameters.entrySet()) {
@@ -187,6 +245,44 @@ public class JiraIssuesMacro {
         return sb.toString();
     }
 
+    /**
+     * Converts this {@code JiraIssuesMacro} into confluence storage format, without
+     * a round-trip to the server.
+     *
+     * @return a String containing the storage representation of this macro.
+     */
+    public String toMarkup() {
+        return markup;
+    }
+
+    /**
+     * Writes this {@code JiraIssuesMacro}, in confluence storage format, to {@code writer}.
+     *
+     * @param writer the {@code StorageWriter} to write to.
+     */
+    @Override
+    public void toMarkup(final StorageWriter writer) {
+        writer.raw(markup);
+    }
+
+    // renders the storage format markup; see toMarkup().
+    private String renderMarkup() {
+        final StorageWriter writer = new StorageWriter();
+        writer.startMacro("jiraissues");
+        for (Map.Entry<Parameters, String> entry : parameters.entrySet()) {
+            final String name = StringUtils.convertToCamelCase(entry.getKey().name());
+            if (entry.getKey() == Parameters.URL) {
+                writer.raw("<ac:parameter ac:name=\"").raw(name).raw("\">")
+                        .raw("<ri:url ri:value=\"").text(entry.getValue()).raw("\" />")
+                        .raw("</ac:parameter>");
+            } else {
+                writer.parameter(name, entry.getValue());
+            }
+        }
+        writer.endMacro();
+        return writer.toString();
+    }
+
     /**
      * Convert wiki markup produced by this macro to storage representation.
      *
@@ -200,6 +296,20 @@ public class JiraIssuesMacro {
         return client.convertContent(wikiStorage, Storage.Representation.STORAGE).getValue();
     }
 
+    /**
+     * Convert wiki markup produced by this macro to storage representation, using a
+     * {@code ConversionService} so that identical macros are only converted once.
+     *
+     * @param conversions the {@code ConversionService} to use to convert to storage form.
+     * @return a String containing the wiki markup of this macro, to storage representation.
+     * @throws NullPointerException if {@code conversions} is null.
+     */
+    public String toStorageRepresentation(final ConversionService conversions) {
+        Objects.requireNonNull(conversions);
+        Storage wikiStorage = new Storage(toWikiMarkup(), Storage.Representation.WIKI.toString());
+        return conversions.convert(wikiStorage, Storage.Representation.STORAGE).getValue();
+    }
+
     /**
      * Builder factory method.
      *
@@ -0,0 +1,88 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.util.EnumMap;
+import java.util.Optional;
+
+/**
+ * Converts the subset of wiki markup produced by this library into the confluence
+ * storage format, without a round-trip to the server.
+ * <p>Currently understood:
+ * <ul>
+ * <li>A single {@literal {jiraissues:...}} macro, as produced by
+ * {@link JiraIssuesMacro#toWikiMarkup()}.</li>
+ * </ul>
+ * Anything else is reported as not understood, so that the caller can fall back to
+ * the {@literal /rest/api/contentbody/convert/storage} endpoint.
+ *
+ * @author Jonathon Hope
+ * @see <a href="https://confluence.atlassian.com/display/DOC/Confluence+Storage+Format">
+ * Confluence Storage Format</a>
+ */
+public final class LocalWikiConverter {
+
+    private static final String JIRA_ISSUES_PREFIX = "{jiraissues:";
+
+    // prevent instantiation.
+    private LocalWikiConverter() {
+    }
+
+    /**
+     * Attempt to convert {@code wikiMarkup} into storage representation locally.
+     *
+     * @param wikiMarkup the wiki markup to convert.
+     * @return the storage representation, or {@code Optional.empty()} if the markup contains
+     * constructs that can only be converted by the server.
+     */
+    public static Optional<String> toStorage(final String wikiMarkup) {
+        if (wikiMarkup == null) {
+            return Optional.empty();
+        }
+        final String markup = wikiMarkup.trim();
+        if (markup.startsWith(JIRA_ISSUES_PREFIX) && markup.endsWith("}")) {
+            return convertJiraIssues(markup.substring(JIRA_ISSUES_PREFIX.length(), markup.length() - 1));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Converts the parameter list of a {@literal {jiraissues:...}} macro, for example
+     * {@literal Url=http://jira/...|Columns=type,key|Count=true}.
+     */
+    private static Optional<String> convertJiraIssues(final String parameterList) {
+        // braces would mean nested macros, which only the server can interpret.
+        if (parameterList.isEmpty() || parameterList.indexOf('{') >= 0 || parameterList.indexOf('}') >= 0) {
+            return Optional.empty();
+        }
+        final EnumMap<JiraIssuesMacro.Parameters, String> parameters =
+                new EnumMap<>(JiraIssuesMacro.Parameters.class);
+        for (String pair : parameterList.split("\\|")) {
+            final int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                return Optional.empty();
+            }
+            final JiraIssuesMacro.Parameters parameter = lookup(pair.substring(0, separator).trim());
+            if (parameter == null) {
+                return Optional.empty();
+            }
+            parameters.put(parameter, pair.substring(separator + 1));
+        }
+        if (!parameters.containsKey(JiraIssuesMacro.Parameters.URL)) {
+            return Optional.empty();
+        }
+        return Optional.of(new JiraIssuesMacro(parameters).toMarkup());
+    }
+
+    /**
+     * Wiki parameter names are matched case insensitively, ignoring underscores; so
+     * {@literal "RenderMode"} and {@literal "rendermode"} both map to {@code RENDER_MODE}.
+     */
+    private static JiraIssuesMacro.Parameters lookup(final String name) {
+        for (JiraIssuesMacro.Parameters parameter : JiraIssuesMacro.Parameters.values()) {
+            if (parameter.name().replace("_", "").equalsIgnoreCase(name)) {
+                return parameter;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * An {@literal ac:structured-macro} element read from storage format markup by a
+ * {@link StorageMacroReader}.
+ * <p>The name and parameters are kept exactly as they appear in the markup, so that
+ * macros this library has no model class for can still be inspected; {@link #toMacro()}
+ * converts the supported ones into their model class.
+ *
+ * @author Jonathon Hope
+ */
+public final class MacroElement {
+
+    /**
+     * The value of the {@literal ac:name} attribute.
+     */
+    private final String name;
+    /**
+     * The parameters, by {@literal ac:name}, in the order in which they appear.
+     */
+    private final Map<String, String> parameters;
+    /**
+     * The plain text body with CDATA sections unwrapped, or the markup of the rich
+     * text body; {@code null} if the macro has no body.
+     */
+    private final String body;
+    /**
+     * {@code true} if the body is an {@literal ac:rich-text-body}.
+     */
+    private final boolean richTextBody;
+
+    /**
+     * Constructor.
+     *
+     * @param name         the name of the macro.
+     * @param parameters   the parameters of the macro.
+     * @param body         the body of the macro, or {@code null}.
+     * @param richTextBody {@code true} if the body is an {@literal ac:rich-text-body}.
+     */
+    MacroElement(final String name, final Map<String, String> parameters,
+                 final String body, final boolean richTextBody) {
+        this.name = name;
+        this.parameters = Collections.unmodifiableMap(parameters);
+        this.body = body;
+        this.richTextBody = richTextBody;
+    }
+
+    /**
+     * @return the name of the macro, for example {@literal "code"}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return an unmodifiable map of parameter names to values.
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @param parameterName the {@literal ac:name} of the parameter.
+     * @return the value of the parameter, or {@code null}.
+     */
+    public String getParameter(final String parameterName) {
+        return parameters.get(parameterName);
+    }
+
+    /**
+     * @return the body of the macro, or {@code null} if it has none.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return {@code true} if the body is rich text (storage format markup), or {@code false}
+     * if it is plain text.
+     */
+    public boolean hasRichTextBody() {
+        return richTextBody;
+    }
+
+    /**
+     * Converts this element into its model class: {@link CodeBlockMacro}, {@link JiraIssuesMacro},
+     * {@link TableOfContentsMacro}, {@link ExpandMacro} or {@link HtmlMacro}. Parameters that the
+     * model class does not know about are dropped.
+     *
+     * @return the macro, or {@code null} if there is no model class for this macro.
+     */
+    public StorageMacro toMacro() {
+        switch (name) {
+            case "code":
+                return new CodeBlockMacro(
+                        lookup(CodeBlockMacro.Parameters.class), body == null ? "" : body);
+            case "jira":
+            case "jiraissues":
+                return new JiraIssuesMacro(lookup(JiraIssuesMacro.Parameters.class));
+            case "toc":
+                return new TableOfContentsMacro(lookup(TableOfContentsMacro.Parameters.class));
+            case "expand":
+                return new ExpandMacro(parameters.get("title"), body == null ? "" : body);
+            case "html":
+                return new HtmlMacro(body == null ? "" : body);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Maps the parameter names onto the constants of {@code type}, ignoring case and
+     * underscores; so {@literal "minLevel"} and {@literal "MinLevel"} both map to
+     * {@code MIN_LEVEL}.
+     */
+    private <E extends Enum<E>> EnumMap<E, String> lookup(final Class<E> type) {
+        final EnumMap<E, String> result = new EnumMap<>(type);
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            for (E constant : type.getEnumConstants()) {
+                if (constant.name().replace("_", "").equalsIgnoreCase(entry.getKey())) {
+                    result.put(constant, entry.getValue());
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MacroElement{name='" + name + "', parameters=" + parameters + '}';
+    }
+
+}
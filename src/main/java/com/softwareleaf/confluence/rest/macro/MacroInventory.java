@@ -0,0 +1,257 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import com.google.common.collect.Iterators;
+import com.softwareleaf.confluence.rest.ConfluenceClient;
+import com.softwareleaf.confluence.rest.model.Content;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Takes an inventory of the macros used across one or more spaces.
+ * <p>Content is fetched a page of results at a time, on the calling thread, while the
+ * bodies already fetched are parsed in parallel on a {@link ForkJoinPool}. Only a bounded
+ * number of batches are held in memory at once, so spaces of any size can be scanned.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (MacroInventory inventory = MacroInventory.builder(client).parallelism(8).build()) {
+ *         MacroReport report = inventory.scan("DEV", "OPS");
+ *         MacroUsage code = report.getUsage("code");
+ *         if (code != null) {
+ *             System.out.println(code.getValueCounts("language"));
+ *         }
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see StorageMacroReader
+ */
+public class MacroInventory implements AutoCloseable {
+    /**
+     * The number of pieces of content parsed together as a single task.
+     */
+    private static final int BATCH_SIZE = 64;
+    /**
+     * Batches smaller than this are parsed by a single thread rather than forked.
+     */
+    private static final int SPLIT_THRESHOLD = 4;
+
+    /**
+     * The client used to fetch content.
+     */
+    private final ConfluenceClient client;
+    /**
+     * Parses the bodies of the content.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * {@code true} if the pool was created by this instance, and should be shut down by it.
+     */
+    private final boolean ownsPool;
+    /**
+     * The maximum number of batches that may be waiting to be parsed.
+     */
+    private final int maxPendingBatches;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private MacroInventory(final Builder builder) {
+        this.client = builder.client;
+        this.ownsPool = builder.pool == null;
+        this.pool = ownsPool ? new ForkJoinPool(builder.parallelism) : builder.pool;
+        this.maxPendingBatches = 2 * pool.getParallelism();
+    }
+
+    /**
+     * Scans all content in the given spaces.
+     *
+     * @param spaceKeys the keys of the spaces to scan.
+     * @return the usage of every macro found.
+     */
+    public MacroReport scan(final String... spaceKeys) {
+        return scan(Arrays.asList(spaceKeys));
+    }
+
+    /**
+     * Scans all content in the given spaces.
+     *
+     * @param spaceKeys the keys of the spaces to scan.
+     * @return the usage of every macro found.
+     */
+    public MacroReport scan(final Collection<String> spaceKeys) {
+        // chained by hand, as on Java 8 the iterator of a flatMap stream buffers each
+        // space in full before returning its first element.
+        return scan(Iterators.concat(Iterators.transform(spaceKeys.iterator(),
+                spaceKey -> client.streamSpaceContent(spaceKey).iterator())));
+    }
+
+    /**
+     * Scans the given content, which should have its {@literal body.storage} expanded;
+     * content without a body is counted but otherwise ignored.
+     *
+     * @param contents the content to scan.
+     * @return the usage of every macro found.
+     */
+    public MacroReport scan(final Stream<Content> contents) {
+        return scan(contents.iterator());
+    }
+
+    // parses the content in batches, as it is fetched.
+    private MacroReport scan(final Iterator<Content> iterator) {
+        final ConcurrentMap<String, MacroUsage.Tally> tallies = new ConcurrentHashMap<>();
+        final LongAdder scanned = new LongAdder();
+        final Deque<ForkJoinTask<?>> pending = new ArrayDeque<>();
+        try {
+            while (iterator.hasNext()) {
+                final List<Content> batch = new ArrayList<>(BATCH_SIZE);
+                while (batch.size() < BATCH_SIZE && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                if (pending.size() == maxPendingBatches) {
+                    pending.removeFirst().join();
+                }
+                pending.addLast(pool.submit(new ScanTask(batch, 0, batch.size(), tallies, scanned)));
+            }
+            while (!pending.isEmpty()) {
+                pending.removeFirst().join();
+            }
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+        }
+        return new MacroReport(scanned.sum(), tallies.values());
+    }
+
+    /**
+     * Shuts down the pool, if it was created by this instance.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses the bodies of a range of a batch of content, splitting the range in two
+     * until it is small enough to be parsed by a single thread.
+     */
+    private static final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Content> batch;
+        private final int from;
+        private final int to;
+        private final ConcurrentMap<String, MacroUsage.Tally> tallies;
+        private final LongAdder scanned;
+
+        ScanTask(final List<Content> batch, final int from, final int to,
+                 final ConcurrentMap<String, MacroUsage.Tally> tallies, final LongAdder scanned) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.tallies = tallies;
+            this.scanned = scanned;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    scan(batch.get(i));
+                }
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ScanTask(batch, from, middle, tallies, scanned),
+                    new ScanTask(batch, middle, to, tallies, scanned));
+        }
+
+        private void scan(final Content content) {
+            scanned.increment();
+            if (content.getBody() == null || content.getBody().getStorage() == null
+                    || content.getBody().getStorage().getValue() == null) {
+                return;
+            }
+            StorageMacroReader.stream(content.getBody().getStorage().getValue())
+                    .forEach(element -> tallies.computeIfAbsent(element.getName(), MacroUsage.Tally::new)
+                            .record(element, content.getId()));
+        }
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param client the client used to fetch content.
+     * @return a {@code Builder} instance for chain-building a {@code MacroInventory}.
+     */
+    public static Builder builder(final ConfluenceClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code MacroInventory}.
+     */
+    public static class Builder {
+        private final ConfluenceClient client;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ForkJoinPool pool;
+
+        /**
+         * Constructor.
+         *
+         * @param client the client used to fetch content.
+         */
+        private Builder(final ConfluenceClient client) {
+            this.client = Objects.requireNonNull(client);
+        }
+
+        /**
+         * @param parallelism the number of threads used to parse content; defaults to the
+         *                    number of available processors.
+         * @return {@code this}.
+         * @throws IllegalArgumentException if {@code parallelism} is not positive.
+         */
+        public Builder parallelism(final int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Parse content on an existing pool, such as {@link ForkJoinPool#commonPool()},
+         * rather than creating one; the pool is not shut down by {@link MacroInventory#close()}.
+         *
+         * @param pool the pool to use.
+         * @return {@code this}.
+         */
+        public Builder pool(final ForkJoinPool pool) {
+            this.pool = Objects.requireNonNull(pool);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code MacroInventory}.
+         */
+        public MacroInventory build() {
+            return new MacroInventory(this);
+        }
+    }
+
+}
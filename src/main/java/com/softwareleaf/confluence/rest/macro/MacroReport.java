@@ -0,0 +1,74 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a {@link MacroInventory} scan: the usage of every macro found.
+ *
+ * @author Jonathon Hope
+ */
+public final class MacroReport {
+
+    /**
+     * The number of pieces of content that were scanned.
+     */
+    private final long contentScanned;
+    /**
+     * The usage of each macro, by name, most used first.
+     */
+    private final Map<String, MacroUsage> usages;
+
+    /**
+     * Constructor.
+     *
+     * @param contentScanned the number of pieces of content that were scanned.
+     * @param tallies        the usage collected for each macro.
+     */
+    MacroReport(final long contentScanned, final Iterable<MacroUsage.Tally> tallies) {
+        this.contentScanned = contentScanned;
+        final Map<String, MacroUsage> byName = new LinkedHashMap<>();
+        final List<MacroUsage> sorted = new ArrayList<>();
+        for (MacroUsage.Tally tally : tallies) {
+            sorted.add(new MacroUsage(tally));
+        }
+        sorted.sort(Comparator.comparingLong(MacroUsage::getCount).reversed()
+                .thenComparing(MacroUsage::getName));
+        for (MacroUsage usage : sorted) {
+            byName.put(usage.getName(), usage);
+        }
+        this.usages = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * @return the number of pieces of content that were scanned.
+     */
+    public long getContentScanned() {
+        return contentScanned;
+    }
+
+    /**
+     * @return the usage of each macro found, by macro name, most used first.
+     */
+    public Map<String, MacroUsage> getUsages() {
+        return usages;
+    }
+
+    /**
+     * @param macroName the name of the macro, for example {@literal "jira"}.
+     * @return the usage of the macro, or {@code null} if it was not found.
+     */
+    public MacroUsage getUsage(final String macroName) {
+        return usages.get(macroName);
+    }
+
+    @Override
+    public String toString() {
+        return "MacroReport{contentScanned=" + contentScanned + ", usages=" + usages.values() + '}';
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How often, and where, a single macro is used; part of a {@link MacroReport}.
+ * <p>For each parameter of the macro, the distinct values it is given are recorded
+ * together with the content they appear in; so for the {@literal "code"} macro,
+ * {@code getValueCounts("language")} gives the number of code blocks per language, and
+ * {@code getContentIds("language", "java")} the pages that contain Java code blocks.
+ *
+ * @author Jonathon Hope
+ * @see MacroInventory
+ */
+public final class MacroUsage {
+
+    /**
+     * The name of the macro.
+     */
+    private final String name;
+    /**
+     * The number of times the macro is used.
+     */
+    private final long count;
+    /**
+     * The ids of the content that use the macro.
+     */
+    private final Set<String> contentIds;
+    /**
+     * Parameter name, to parameter value, to the usage of that value.
+     */
+    private final Map<String, Map<String, ValueUsage>> parameters;
+
+    /**
+     * Constructor; takes a snapshot of {@code tally}.
+     *
+     * @param tally the usage collected by a {@link MacroInventory}.
+     */
+    MacroUsage(final Tally tally) {
+        this.name = tally.name;
+        this.count = tally.count.sum();
+        this.contentIds = Collections.unmodifiableSet(new TreeSet<>(tally.contentIds));
+        final Map<String, Map<String, ValueUsage>> params = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, Tally>> parameter : tally.parameters.entrySet()) {
+            final Map<String, ValueUsage> values = new TreeMap<>();
+            for (Map.Entry<String, Tally> value : parameter.getValue().entrySet()) {
+                values.put(value.getKey(), new ValueUsage(value.getValue()));
+            }
+            params.put(parameter.getKey(), values);
+        }
+        this.parameters = params;
+    }
+
+    /**
+     * @return the name of the macro, for example {@literal "code"}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of times the macro is used, across all content.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the ids of the content that use the macro, in ascending order.
+     */
+    public Set<String> getContentIds() {
+        return contentIds;
+    }
+
+    /**
+     * @return the names of the parameters the macro has been given, in ascending order.
+     */
+    public Set<String> getParameterNames() {
+        return Collections.unmodifiableSet(parameters.keySet());
+    }
+
+    /**
+     * @param parameterName the name of the parameter, for example {@literal "language"}.
+     * @return the number of times each distinct value of the parameter is used, most
+     * frequent first; empty if the macro has never been given the parameter.
+     */
+    public Map<String, Long> getValueCounts(final String parameterName) {
+        final Map<String, ValueUsage> values = parameters.getOrDefault(parameterName, Collections.emptyMap());
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        values.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().count, a.getValue().count))
+                .forEach(entry -> counts.put(entry.getKey(), entry.getValue().count));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * @param parameterName the name of the parameter, for example {@literal "jqlQuery"}.
+     * @param value         the value of the parameter.
+     * @return the ids of the content that use the macro with the given parameter value,
+     * in ascending order.
+     */
+    public Set<String> getContentIds(final String parameterName, final String value) {
+        final ValueUsage usage = parameters.getOrDefault(parameterName, Collections.emptyMap()).get(value);
+        return usage == null ? Collections.emptySet() : usage.contentIds;
+    }
+
+    @Override
+    public String toString() {
+        return "MacroUsage{name='" + name + "', count=" + count + ", content=" + contentIds.size() + '}';
+    }
+
+    /**
+     * The usage of a single parameter value.
+     */
+    private static final class ValueUsage {
+        private final long count;
+        private final Set<String> contentIds;
+
+        ValueUsage(final Tally tally) {
+            this.count = tally.count.sum();
+            this.contentIds = Collections.unmodifiableSet(new TreeSet<>(tally.contentIds));
+        }
+    }
+
+    /**
+     * Collects the usage of a macro, or of one of its parameter values, from many threads.
+     */
+    static final class Tally {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final Set<String> contentIds = ConcurrentHashMap.newKeySet();
+        private final ConcurrentMap<String, ConcurrentMap<String, Tally>> parameters = new ConcurrentHashMap<>();
+
+        Tally(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records a single use of the macro.
+         *
+         * @param element   the macro.
+         * @param contentId the id of the content it was found in, or {@code null}.
+         */
+        void record(final MacroElement element, final String contentId) {
+            increment(contentId);
+            for (Map.Entry<String, String> parameter : element.getParameters().entrySet()) {
+                parameters.computeIfAbsent(parameter.getKey(), k -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(parameter.getValue(), Tally::new)
+                        .increment(contentId);
+            }
+        }
+
+        private void increment(final String contentId) {
+            count.increment();
+            if (contentId != null) {
+                contentIds.add(contentId);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Compares confluence storage format markup structurally, rather than character by
+ * character, so that markup which differs only in ways confluence does not preserve is
+ * considered equal.
+ * <p>Before comparing, the markup is reduced to a canonical sequence of tokens:
+ * <ul>
+ * <li>the attributes of each tag are sorted by name;</li>
+ * <li>the {@literal ac:macro-id} and {@literal ac:schema-version} attributes of
+ * {@literal <ac:structured-macro>} are dropped, as confluence assigns them on save;</li>
+ * <li>runs of whitespace in text are collapsed into a single space, and text made up
+ * only of whitespace is dropped; except within {@literal <pre>} and macro bodies, where
+ * whitespace is significant;</li>
+ * <li>entities are decoded, so {@literal &nbsp;} and {@literal &#160;} are the same;</li>
+ * <li>CDATA sections are treated as text, so a split {@literal ]]>} does not matter;</li>
+ * <li>comments and processing instructions are dropped.</li>
+ * </ul>
+ * <p>Example Usage:
+ * <pre>{@code
+ *     if (!StorageDiff.equivalent(latest.getBody().getStorage().getValue(), generated)) {
+ *         // publish the new version
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see StorageTokenizer
+ */
+public final class StorageDiff {
+
+    /**
+     * The multiplier of the polynomial hash; a large odd constant.
+     */
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    /**
+     * Separates the tokens, and the parts of tokens, fed to the hash.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    private StorageDiff() {
+        // no instantiation
+    }
+
+    /**
+     * Compares two bodies structurally. The comparison stops at the first difference.
+     *
+     * @param a storage format markup; may be {@code null}.
+     * @param b storage format markup; may be {@code null}.
+     * @return {@code true} if the canonical forms of {@code a} and {@code b} are identical.
+     */
+    public static boolean equivalent(final String a, final String b) {
+        if (a == null || b == null) {
+            return a == null && b == null;
+        }
+        if (a.equals(b)) {
+            return true;
+        }
+        final Canonicalizer left = new Canonicalizer(a);
+        final Canonicalizer right = new Canonicalizer(b);
+        while (true) {
+            final String token = left.next();
+            if (!Objects.equals(token, right.next())) {
+                return false;
+            }
+            if (token == null) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Computes a 64 bit hash of the canonical form of {@code storage}, without
+     * materialising it. Bodies that are {@link #equivalent(String, String)} have the same hash.
+     *
+     * @param storage storage format markup; may be {@code null}.
+     * @return the hash of the canonical form.
+     */
+    public static long canonicalHash(final String storage) {
+        if (storage == null) {
+            return 0L;
+        }
+        final Canonicalizer canonicalizer = new Canonicalizer(storage);
+        long hash = 1L;
+        String token;
+        while ((token = canonicalizer.next()) != null) {
+            for (int i = 0; i < token.length(); i++) {
+                hash = hash * MULTIPLIER + token.charAt(i);
+            }
+            hash = hash * MULTIPLIER + SEPARATOR;
+        }
+        // spread the low bits, which are weak in a multiplicative hash.
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Produces the canonical tokens of some markup, one at a time. Each token is prefixed
+     * with a character identifying its kind, so tokens of different kinds never compare
+     * equal.
+     */
+    private static final class Canonicalizer {
+        private final StorageTokenizer tokenizer;
+        /**
+         * Character data read, but not yet returned as a token.
+         */
+        private final StringBuilder text = new StringBuilder();
+        /**
+         * A tag read while collecting character data, returned after it.
+         */
+        private String deferred;
+        /**
+         * The depth of elements in which whitespace is significant.
+         */
+        private int preserveDepth;
+        private boolean exhausted;
+
+        Canonicalizer(final String markup) {
+            this.tokenizer = new StorageTokenizer(new StringReader(markup));
+        }
+
+        /**
+         * @return the next canonical token, or {@code null} after the last one.
+         */
+        String next() {
+            if (deferred != null) {
+                final String tag = deferred;
+                deferred = null;
+                return tag;
+            }
+            try {
+                while (!exhausted) {
+                    final StorageTokenizer.TokenType type = tokenizer.next();
+                    if (type == null) {
+                        exhausted = true;
+                        return flushText();
+                    }
+                    switch (type) {
+                        case TEXT:
+                            appendText(tokenizer.getText(), preserveDepth == 0);
+                            break;
+                        case CDATA:
+                            appendText(tokenizer.getText(), false);
+                            break;
+                        case START_TAG:
+                        case END_TAG:
+                            // the text is flushed first, as the tag may change preserveDepth.
+                            final String pending = flushText();
+                            final String tag = tag(type);
+                            if (pending == null) {
+                                return tag;
+                            }
+                            deferred = tag;
+                            return pending;
+                        default:
+                            // comments, processing instructions and declarations are dropped.
+                    }
+                }
+            } catch (IOException e) {
+                // not thrown by a StringReader.
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        private String tag(final StorageTokenizer.TokenType type) {
+            final String name = tokenizer.getName();
+            final boolean preserves = preservesWhitespace(name);
+            if (type == StorageTokenizer.TokenType.END_TAG) {
+                if (preserves && preserveDepth > 0) {
+                    preserveDepth--;
+                }
+                return "E" + name;
+            }
+            if (preserves && !tokenizer.isEmptyElement()) {
+                preserveDepth++;
+            }
+            final int count = tokenizer.getAttributeCount();
+            final StringBuilder sb = new StringBuilder(name.length() + 1 + count * 24);
+            sb.append(tokenizer.isEmptyElement() ? 'V' : 'S').append(name);
+            if (count > 0) {
+                final boolean macro = "ac:structured-macro".equals(name);
+                final String[] attributes = new String[count];
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    final String attribute = tokenizer.getAttributeName(i);
+                    if (macro && isAssignedOnSave(attribute)) {
+                        continue;
+                    }
+                    attributes[kept++] = attribute + SEPARATOR + tokenizer.getAttributeValue(i);
+                }
+                Arrays.sort(attributes, 0, kept);
+                for (int i = 0; i < kept; i++) {
+                    sb.append(SEPARATOR).append(attributes[i]);
+                }
+            }
+            return sb.toString();
+        }
+
+        // attributes of a macro that confluence adds, or rewrites, when the page is saved.
+        private static boolean isAssignedOnSave(final String attribute) {
+            return "ac:macro-id".equals(attribute) || "ac:schema-version".equals(attribute);
+        }
+
+        private static boolean preservesWhitespace(final String name) {
+            return "pre".equalsIgnoreCase(name) || "ac:plain-text-body".equals(name);
+        }
+
+        private void appendText(final String value, final boolean collapse) {
+            if (!collapse) {
+                text.append(value);
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    if (text.length() == 0 || text.charAt(text.length() - 1) != ' ') {
+                        text.append(' ');
+                    }
+                } else {
+                    text.append(c);
+                }
+            }
+        }
+
+        // returns the pending character data as a token, or null if there is none.
+        private String flushText() {
+            if (text.length() == 0) {
+                return null;
+            }
+            final boolean blank = text.length() == 1 && text.charAt(0) == ' ' && preserveDepth == 0;
+            final String token = blank ? null : "T" + text;
+            text.setLength(0);
+            return token;
+        }
+    }
+
+}
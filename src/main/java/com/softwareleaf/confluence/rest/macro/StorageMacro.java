@@ -0,0 +1,18 @@
+package com.softwareleaf.confluence.rest.macro;
+
+/**
+ * A macro that can be written in the confluence storage format.
+ *
+ * @author Jonathon Hope
+ * @see StorageWriter
+ */
+public interface StorageMacro {
+
+    /**
+     * Writes the storage format markup of this macro.
+     *
+     * @param writer the {@code StorageWriter} to write to.
+     */
+    void toMarkup(StorageWriter writer);
+
+}
@@ -0,0 +1,241 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the {@literal ac:structured-macro} elements out of storage format markup, without
+ * building a DOM.
+ * <p>Macros are returned in the order in which they end, so a macro nested in the rich
+ * text body of another, such as a code block within an expand macro, is returned before
+ * the macro that contains it. Only the macros that are still open are held in memory.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (StorageMacroReader reader = new StorageMacroReader(new StringReader(body))) {
+ *         while (reader.hasNext()) {
+ *             StorageMacro macro = reader.next().toMacro();
+ *             if (macro instanceof CodeBlockMacro) {
+ *                 ...
+ *             }
+ *         }
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see StorageTokenizer
+ */
+public class StorageMacroReader implements Iterator<MacroElement>, Closeable {
+
+    private static final String MACRO = "ac:structured-macro";
+    private static final String PARAMETER = "ac:parameter";
+    private static final String PLAIN_TEXT_BODY = "ac:plain-text-body";
+    private static final String RICH_TEXT_BODY = "ac:rich-text-body";
+
+    /**
+     * What the tokens read are currently part of, within a macro.
+     */
+    private enum State {
+        MACRO,
+        PARAMETER,
+        PLAIN_TEXT_BODY,
+        RICH_TEXT_BODY
+    }
+
+    /**
+     * A macro that has been opened, but not yet closed.
+     */
+    private static final class Frame {
+        private final String name;
+        private final Map<String, String> parameters = new LinkedHashMap<>();
+        private State state = State.MACRO;
+        private String parameterName;
+        private final StringBuilder parameterValue = new StringBuilder();
+        private StringBuilder body;
+        private boolean richTextBody;
+
+        Frame(final String name) {
+            this.name = name;
+        }
+
+        MacroElement toElement() {
+            return new MacroElement(name, parameters, body == null ? null : body.toString(), richTextBody);
+        }
+    }
+
+    private final StorageTokenizer tokenizer;
+    /**
+     * The macros that are currently open, innermost first.
+     */
+    private final Deque<Frame> open = new ArrayDeque<>();
+    /**
+     * The macros that have been closed, but not yet returned.
+     */
+    private final Deque<MacroElement> completed = new ArrayDeque<>();
+    private boolean endOfInput;
+
+    /**
+     * Constructor.
+     *
+     * @param reader the source of the storage format markup.
+     */
+    public StorageMacroReader(final Reader reader) {
+        this.tokenizer = new StorageTokenizer(reader);
+    }
+
+    /**
+     * Streams the macros in {@code markup}.
+     *
+     * @param markup storage format markup, for example the value of a {@code Storage}.
+     * @return a sequential stream of the macros.
+     */
+    public static Stream<MacroElement> stream(final String markup) {
+        final StorageMacroReader reader = new StorageMacroReader(new StringReader(markup));
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return {@code true} if there is another macro.
+     * @throws UncheckedIOException if the underlying {@code Reader} throws an {@code IOException}.
+     */
+    @Override
+    public boolean hasNext() {
+        try {
+            while (completed.isEmpty() && !endOfInput) {
+                advance();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return !completed.isEmpty();
+    }
+
+    /**
+     * @return the next macro.
+     * @throws NoSuchElementException if there are no more macros.
+     */
+    @Override
+    public MacroElement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return completed.removeFirst();
+    }
+
+    @Override
+    public void close() throws IOException {
+        tokenizer.close();
+    }
+
+    // processes a single token.
+    private void advance() throws IOException {
+        final StorageTokenizer.TokenType type = tokenizer.next();
+        if (type == null) {
+            endOfInput = true;
+            return;
+        }
+        final Frame top = open.peekFirst();
+        final String name = tokenizer.getName();
+        switch (type) {
+            case START_TAG:
+                if (MACRO.equals(name)) {
+                    appendToRichTextBodies();
+                    final Frame frame = new Frame(String.valueOf(tokenizer.getAttribute("ac:name")));
+                    if (tokenizer.isEmptyElement()) {
+                        completed.addLast(frame.toElement());
+                    } else {
+                        open.addFirst(frame);
+                    }
+                    return;
+                }
+                appendToRichTextBodies();
+                if (top == null) {
+                    return;
+                }
+                if (top.state == State.MACRO) {
+                    startChild(top, name);
+                } else if (top.state == State.PARAMETER
+                        && top.parameterValue.length() == 0 && tokenizer.getAttributeCount() > 0) {
+                    // for example <ri:url ri:value="..." /> or <ri:page ri:content-title="..." />
+                    top.parameterValue.append(tokenizer.getAttributeValue(0));
+                }
+                return;
+            case END_TAG:
+                if (MACRO.equals(name) && top != null && top.state == State.MACRO) {
+                    open.removeFirst();
+                    appendToRichTextBodies();
+                    completed.addLast(top.toElement());
+                    return;
+                }
+                if (top != null) {
+                    endChild(top, name);
+                }
+                appendToRichTextBodies();
+                return;
+            case TEXT:
+            case CDATA:
+                if (top != null && (top.state == State.PARAMETER || top.state == State.PLAIN_TEXT_BODY)) {
+                    (top.state == State.PARAMETER ? top.parameterValue : top.body).append(tokenizer.getText());
+                }
+                appendToRichTextBodies();
+                return;
+            default:
+                appendToRichTextBodies();
+        }
+    }
+
+    private void startChild(final Frame frame, final String name) {
+        if (PARAMETER.equals(name)) {
+            frame.parameterName = tokenizer.getAttribute("ac:name");
+            frame.parameterValue.setLength(0);
+            if (tokenizer.isEmptyElement()) {
+                frame.parameters.put(String.valueOf(frame.parameterName), "");
+            } else {
+                frame.state = State.PARAMETER;
+            }
+        } else if (PLAIN_TEXT_BODY.equals(name) || RICH_TEXT_BODY.equals(name)) {
+            frame.body = new StringBuilder();
+            frame.richTextBody = RICH_TEXT_BODY.equals(name);
+            if (!tokenizer.isEmptyElement()) {
+                frame.state = frame.richTextBody ? State.RICH_TEXT_BODY : State.PLAIN_TEXT_BODY;
+            }
+        }
+    }
+
+    private void endChild(final Frame frame, final String name) {
+        if (frame.state == State.PARAMETER && PARAMETER.equals(name)) {
+            // parameters without a name are the default parameter of the macro.
+            frame.parameters.put(String.valueOf(frame.parameterName), frame.parameterValue.toString());
+            frame.state = State.MACRO;
+        } else if (frame.state == State.PLAIN_TEXT_BODY && PLAIN_TEXT_BODY.equals(name)
+                || frame.state == State.RICH_TEXT_BODY && RICH_TEXT_BODY.equals(name)) {
+            frame.state = State.MACRO;
+        }
+    }
+
+    /**
+     * Appends the current token, as it appeared in the input, to the body of every open
+     * macro that is within its rich text body.
+     */
+    private void appendToRichTextBodies() {
+        for (Frame frame : open) {
+            if (frame.state == State.RICH_TEXT_BODY) {
+                frame.body.append(tokenizer.getRawText());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,441 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pull tokenizer for the confluence storage format, in the style of a StAX
+ * {@code XMLStreamReader}.
+ * <p>Unlike an XML parser, it does not require the {@literal ac:} and {@literal ri:}
+ * namespace prefixes to be declared, nor HTML entities such as {@literal &nbsp;} to be
+ * defined, and it does not reject markup that is not well formed. Only the current
+ * token is held in memory, so arbitrarily large bodies can be scanned.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     try (StorageTokenizer tokenizer = new StorageTokenizer(new StringReader(body))) {
+ *         while (tokenizer.next() != null) {
+ *             if (tokenizer.getType() == StorageTokenizer.TokenType.START_TAG) {
+ *                 System.out.println(tokenizer.getName());
+ *             }
+ *         }
+ *     }
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see <a href="https://confluence.atlassian.com/display/DOC/Confluence+Storage+Format">
+ * Confluence Storage Format</a>
+ */
+public class StorageTokenizer implements Closeable {
+
+    /**
+     * The kinds of token produced by a {@code StorageTokenizer}.
+     */
+    public enum TokenType {
+        /**
+         * An opening, or self closing, tag: {@literal <ac:parameter ac:name="title">}.
+         */
+        START_TAG,
+        /**
+         * A closing tag: {@literal </ac:parameter>}.
+         */
+        END_TAG,
+        /**
+         * Character data between tags.
+         */
+        TEXT,
+        /**
+         * A {@literal <![CDATA[ ... ]]>} section.
+         */
+        CDATA,
+        /**
+         * A comment, processing instruction or declaration.
+         */
+        OTHER
+    }
+
+    /**
+     * The HTML entities, beyond those predefined by XML, that commonly appear in storage format.
+     */
+    private static final Map<String, String> ENTITIES = new HashMap<>();
+
+    static {
+        ENTITIES.put("amp", "&");
+        ENTITIES.put("lt", "<");
+        ENTITIES.put("gt", ">");
+        ENTITIES.put("quot", "\"");
+        ENTITIES.put("apos", "'");
+        ENTITIES.put("nbsp", "\u00A0");
+        ENTITIES.put("ndash", "\u2013");
+        ENTITIES.put("mdash", "\u2014");
+        ENTITIES.put("lsquo", "\u2018");
+        ENTITIES.put("rsquo", "\u2019");
+        ENTITIES.put("ldquo", "\u201C");
+        ENTITIES.put("rdquo", "\u201D");
+        ENTITIES.put("hellip", "\u2026");
+        ENTITIES.put("bull", "\u2022");
+        ENTITIES.put("copy", "\u00A9");
+        ENTITIES.put("reg", "\u00AE");
+        ENTITIES.put("trade", "\u2122");
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // the current token.
+    private TokenType type;
+    private final StringBuilder raw = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private String name;
+    private boolean emptyElement;
+    private final List<String> attributeNames = new ArrayList<>();
+    private final List<String> attributeValues = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param reader the source of the storage format markup.
+     */
+    public StorageTokenizer(final Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Advances to the next token.
+     *
+     * @return the type of the next token, or {@code null} at the end of the input.
+     * @throws IOException if the underlying {@code Reader} does.
+     */
+    public TokenType next() throws IOException {
+        raw.setLength(0);
+        text.setLength(0);
+        name = null;
+        emptyElement = false;
+        attributeNames.clear();
+        attributeValues.clear();
+
+        final int c = peek();
+        if (c == -1) {
+            type = null;
+        } else if (c == '<') {
+            read();
+            readMarkup();
+        } else {
+            readText();
+        }
+        return type;
+    }
+
+    /**
+     * @return the type of the current token, or {@code null} at the end of the input.
+     */
+    public TokenType getType() {
+        return type;
+    }
+
+    /**
+     * @return the qualified name of the current tag, for example {@literal "ac:parameter"};
+     * or {@code null} if the current token is not a tag.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return {@code true} if the current token is a self closing tag, such as
+     * {@literal <ri:url ri:value="..." />}.
+     */
+    public boolean isEmptyElement() {
+        return emptyElement;
+    }
+
+    /**
+     * @return the number of attributes of the current tag.
+     */
+    public int getAttributeCount() {
+        return attributeNames.size();
+    }
+
+    /**
+     * @param index the index of the attribute.
+     * @return the qualified name of the attribute.
+     */
+    public String getAttributeName(final int index) {
+        return attributeNames.get(index);
+    }
+
+    /**
+     * @param index the index of the attribute.
+     * @return the value of the attribute, with entities decoded.
+     */
+    public String getAttributeValue(final int index) {
+        return attributeValues.get(index);
+    }
+
+    /**
+     * @param attributeName the qualified name of the attribute, for example {@literal "ac:name"}.
+     * @return the value of the attribute, with entities decoded, or {@code null} if the current
+     * tag does not have the attribute.
+     */
+    public String getAttribute(final String attributeName) {
+        final int index = attributeNames.indexOf(attributeName);
+        return index < 0 ? null : attributeValues.get(index);
+    }
+
+    /**
+     * @return for {@code TEXT} the text with entities decoded; for {@code CDATA} the contents
+     * of the section; for {@code OTHER} the contents between the delimiters; otherwise
+     * an empty {@code String}.
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * @return the current token exactly as it appeared in the input.
+     */
+    public CharSequence getRawText() {
+        return raw;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // reading
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        final int c = peek();
+        if (c != -1) {
+            position++;
+            raw.append((char) c);
+        }
+        return c;
+    }
+
+    private void readText() throws IOException {
+        type = TokenType.TEXT;
+        int c;
+        while ((c = peek()) != -1 && c != '<') {
+            read();
+            if (c == '&') {
+                readEntity(text);
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    private void readMarkup() throws IOException {
+        final int c = peek();
+        if (c == '/') {
+            read();
+            type = TokenType.END_TAG;
+            name = readName();
+            readUntil(">", null);
+        } else if (c == '!') {
+            read();
+            if (peek() == '[') {
+                type = TokenType.CDATA;
+                readUntil("[", null);
+                // skip "CDATA["
+                readUntil("[", null);
+                readUntil("]]>", text);
+            } else if (peek() == '-') {
+                type = TokenType.OTHER;
+                readUntil("-", null);
+                readUntil("-", null);
+                readUntil("-->", text);
+            } else {
+                type = TokenType.OTHER;
+                readUntil(">", text);
+            }
+        } else if (c == '?') {
+            read();
+            type = TokenType.OTHER;
+            readUntil("?>", text);
+        } else if (c != -1 && (Character.isLetter(c) || c == '_' || c == ':')) {
+            type = TokenType.START_TAG;
+            name = readName();
+            readAttributes();
+        } else {
+            // a stray '<', which is treated as text.
+            text.append('<');
+            readText();
+        }
+    }
+
+    private String readName() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = peek()) != -1 && !Character.isWhitespace(c) && c != '>' && c != '/' && c != '=') {
+            sb.append((char) read());
+        }
+        return sb.toString();
+    }
+
+    private void readAttributes() throws IOException {
+        while (true) {
+            skipWhitespace();
+            final int c = peek();
+            if (c == -1) {
+                return;
+            }
+            if (c == '>') {
+                read();
+                return;
+            }
+            if (c == '/') {
+                read();
+                emptyElement = true;
+                continue;
+            }
+            emptyElement = false;
+            final String attributeName = readName();
+            if (attributeName.isEmpty()) {
+                // not a valid attribute; skip the offending character.
+                read();
+                continue;
+            }
+            skipWhitespace();
+            String value = "";
+            if (peek() == '=') {
+                read();
+                skipWhitespace();
+                value = readAttributeValue();
+            }
+            attributeNames.add(attributeName);
+            attributeValues.add(value);
+        }
+    }
+
+    private String readAttributeValue() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final int quote = peek();
+        if (quote == '"' || quote == '\'') {
+            read();
+            int c;
+            while ((c = read()) != -1 && c != quote) {
+                if (c == '&') {
+                    readEntity(sb);
+                } else {
+                    sb.append((char) c);
+                }
+            }
+        } else {
+            int c;
+            while ((c = peek()) != -1 && !Character.isWhitespace(c) && c != '>') {
+                read();
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes the entity following an {@literal '&'} into {@code out}. Unknown entities, and
+     * ampersands that do not start an entity, are kept as they are.
+     */
+    private void readEntity(final StringBuilder out) throws IOException {
+        final StringBuilder entity = new StringBuilder();
+        int c;
+        while ((c = peek()) != -1 && c != ';' && entity.length() < 32
+                && (Character.isLetterOrDigit(c) || c == '#')) {
+            entity.append((char) read());
+        }
+        if (c != ';') {
+            out.append('&').append(entity);
+            return;
+        }
+        read();
+        final String decoded = decodeEntity(entity.toString());
+        if (decoded == null) {
+            out.append('&').append(entity).append(';');
+        } else {
+            out.append(decoded);
+        }
+    }
+
+    private static String decodeEntity(final String entity) {
+        if (entity.startsWith("#")) {
+            try {
+                final int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                        ? Integer.parseInt(entity.substring(2), 16)
+                        : Integer.parseInt(entity.substring(1));
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return ENTITIES.get(entity);
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+            read();
+        }
+    }
+
+    /**
+     * Reads up to and including {@code delimiter}, collecting the characters before it
+     * into {@code content}, if given.
+     */
+    private void readUntil(final String delimiter, final StringBuilder content) throws IOException {
+        final int last = delimiter.length() - 1;
+        int matched = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (content != null) {
+                content.append((char) c);
+            }
+            if (c == delimiter.charAt(matched)) {
+                if (matched == last) {
+                    if (content != null) {
+                        content.setLength(content.length() - delimiter.length());
+                    }
+                    return;
+                }
+                matched++;
+            } else if (c == delimiter.charAt(0)) {
+                // the delimiters used, such as "]]>" and "-->", can only overlap with
+                // themselves through a repeated first character, as in "]]]>".
+                matched = repeats(delimiter, matched) ? matched : 1;
+            } else {
+                matched = 0;
+            }
+        }
+    }
+
+    // true if the first count characters of delimiter are all the same.
+    private static boolean repeats(final String delimiter, final int count) {
+        for (int i = 1; i < count; i++) {
+            if (delimiter.charAt(i) != delimiter.charAt(0)) {
+                return false;
+            }
+        }
+        return count > 0;
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.softwareleaf.confluence.rest.macro;
+
+import com.softwareleaf.confluence.rest.model.Storage;
+import com.softwareleaf.confluence.rest.util.XmlEscaper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes confluence storage format markup directly to an {@link Appendable}, such as a
+ * {@code StringBuilder} or a {@code java.io.Writer}.
+ * <p>Macros write themselves into a {@code StorageWriter} with
+ * {@link StorageMacro#toMarkup(StorageWriter)}, so a page body made up of many macros
+ * can be built in a single growing buffer, or streamed, rather than concatenating the
+ * {@code String} produced by each macro.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     StorageWriter writer = new StorageWriter();
+ *     writer.append(TableOfContentsMacro.builder().build())
+ *           .raw("<h1>Results</h1>")
+ *           .append(CodeBlockMacro.builder().language(Languages.JAVA).code(source).build());
+ *     page.setBody(new Body(writer.toStorage()));
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see <a href="https://confluence.atlassian.com/display/DOC/Confluence+Storage+Format">
+ * Confluence Storage Format</a>
+ */
+public class StorageWriter {
+
+    /**
+     * The destination of the markup.
+     */
+    private final Appendable out;
+
+    /**
+     * Constructor. The markup is collected in a {@code StringBuilder}, and can be
+     * obtained with {@link #toString()} or {@link #toStorage()}.
+     */
+    public StorageWriter() {
+        this(new StringBuilder());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param out the destination of the markup.
+     */
+    public StorageWriter(final Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the given macro.
+     *
+     * @param macro the macro to write.
+     * @return {@code this}.
+     */
+    public StorageWriter append(final StorageMacro macro) {
+        macro.toMarkup(this);
+        return this;
+    }
+
+    /**
+     * Writes {@code markup} verbatim.
+     *
+     * @param markup well formed storage format markup.
+     * @return {@code this}.
+     */
+    public StorageWriter raw(final CharSequence markup) {
+        try {
+            out.append(markup);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code text}, escaping the characters that are significant in XML.
+     *
+     * @param text the text to write.
+     * @return {@code this}.
+     */
+    public StorageWriter text(final CharSequence text) {
+        XmlEscaper.escape(text, out);
+        return this;
+    }
+
+    /**
+     * Writes {@code text} as a CDATA section, splitting any {@literal "]]>"} within it.
+     *
+     * @param text the text to write.
+     * @return {@code this}.
+     * @see XmlEscaper#writeCData(CharSequence, Appendable)
+     */
+    public StorageWriter cdata(final CharSequence text) {
+        XmlEscaper.writeCData(text, out);
+        return this;
+    }
+
+    /**
+     * Opens a macro:
+     * <pre>{@literal
+     *      <ac:structured-macro ac:name="toc">
+     * }</pre>
+     *
+     * @param name the name of the macro.
+     * @return {@code this}.
+     */
+    public StorageWriter startMacro(final String name) {
+        return raw("<ac:structured-macro ac:name=\"").raw(name).raw("\">");
+    }
+
+    /**
+     * Closes the macro opened by {@link #startMacro(String)}.
+     *
+     * @return {@code this}.
+     */
+    public StorageWriter endMacro() {
+        return raw("</ac:structured-macro>");
+    }
+
+    /**
+     * Writes a macro parameter:
+     * <pre>{@literal
+     *      <ac:parameter ac:name="language">java</ac:parameter>
+     * }</pre>
+     *
+     * @param name  the name of the parameter.
+     * @param value the value of the parameter, which will be escaped.
+     * @return {@code this}.
+     */
+    public StorageWriter parameter(final String name, final CharSequence value) {
+        return raw("<ac:parameter ac:name=\"").raw(name).raw("\">")
+                .text(value)
+                .raw("</ac:parameter>");
+    }
+
+    /**
+     * Writes a complete plain text body, wrapping {@code text} in a CDATA section:
+     * <pre>{@literal
+     *      <ac:plain-text-body><![CDATA[ ... ]]></ac:plain-text-body>
+     * }</pre>
+     *
+     * @param text the unescaped text of the body.
+     * @return {@code this}.
+     */
+    public StorageWriter plainTextBody(final CharSequence text) {
+        return startPlainTextBody()
+                .cdata(text)
+                .endPlainTextBody();
+    }
+
+    /**
+     * Opens the plain text body of a macro.
+     *
+     * @return {@code this}.
+     */
+    public StorageWriter startPlainTextBody() {
+        return raw("<ac:plain-text-body>");
+    }
+
+    /**
+     * Closes the body opened by {@link #startPlainTextBody()}.
+     *
+     * @return {@code this}.
+     */
+    public StorageWriter endPlainTextBody() {
+        return raw("</ac:plain-text-body>");
+    }
+
+    /**
+     * Opens the rich text body of a macro.
+     *
+     * @return {@code this}.
+     */
+    public StorageWriter startRichTextBody() {
+        return raw("<ac:rich-text-body>");
+    }
+
+    /**
+     * Closes the body opened by {@link #startRichTextBody()}.
+     *
+     * @return {@code this}.
+     */
+    public StorageWriter endRichTextBody() {
+        return raw("</ac:rich-text-body>");
+    }
+
+    /**
+     * @return the {@code Appendable} this writer writes to.
+     */
+    public Appendable getAppendable() {
+        return out;
+    }
+
+    /**
+     * @return the markup written so far, if the underlying {@code Appendable} is a
+     * {@code CharSequence}; otherwise the result of its {@code toString()}.
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    /**
+     * @return a new {@code Storage} holding the markup written so far.
+     * @see #toString()
+     */
+    public Storage toStorage() {
+        return new Storage(toString(), Storage.Representation.STORAGE.toString());
+    }
+
+}
@@ -2,7 +2,9 @@ package com.softwareleaf.confluence.rest.macro;
 
 import com.softwareleaf.confluence.rest.util.StringUtils;
 
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -22,7 +24,7 @@ import java.util.Map;
  * @see <a href="https://confluence.atlassian.com/display/DOC/Table+of+Contents+Macro">table of Contents
  * Macro Documentation</a>
  */
-public class TableOfContentsMacro {
+public class TableOfContentsMacro implements StorageMacro {
 
     /**
      * Parameters are options that you can set to control the content or format of the macro output.
@@ -79,9 +81,15 @@ public class TableOfContentsMacro {
          */
         PRINTABLE;
 
+        private final String value;
+
+        Parameters() {
+            this.value = StringUtils.convertToUpperCamel(name());
+        }
+
         @Override
         public String toString() {
-            return StringUtils.convertToUpperCamel(this.name());
+            return value;
         }
     }
 
@@ -116,9 +124,15 @@ public class TableOfContentsMacro {
          */
         LIST;
 
+        private final String value;
+
+        OutputType() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return this.name().toLowerCase();
+            return value;
         }
     }
 
@@ -160,10 +174,16 @@ public class TableOfContentsMacro {
          */
         UPPER_ROMAN;
 
+        private final String value;
+
+        ListStyle() {
+            // replace the underscore with a dash and print as lower case
+            this.value = name().replace('_', '-').toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            // replace the underscore with a dash and print as lower case
-            return this.name().replace('_', '-').toLowerCase();
+            return value;
         }
     }
 
@@ -171,27 +191,20 @@ public class TableOfContentsMacro {
      * The available indentation levels.
      */
     public enum Indentation {
-        TEN_PX,
-        TWENTY_PX,
-        THIRTY_PX,
-        FORTY_PX;
-
-        private String convert() {
-            switch (name()) {
-                case "TEN_PX":
-                    return "10px";
-                case "TWENTY_PX":
-                    return "20px";
-                case "THIRTY_PX":
-                    return "30px";
-                default:
-                    return "40px";
-            }
+        TEN_PX("10px"),
+        TWENTY_PX("20px"),
+        THIRTY_PX("30px"),
+        FORTY_PX("40px");
+
+        private final String value;
+
+        Indentation(String value) {
+            this.value = value;
         }
 
         @Override
         public String toString() {
-            return convert();
+            return value;
         }
     }
 
@@ -216,9 +229,15 @@ public class TableOfContentsMacro {
          */
         PIPE;
 
+        private final String value;
+
+        Separator() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return super.toString().toLowerCase();
+            return value;
         }
     }
 
@@ -227,7 +246,12 @@ public class TableOfContentsMacro {
     /**
      * Stores the parameters of this code block macro.
      */
-    private EnumMap<Parameters, String> parameters;
+    private final EnumMap<Parameters, String> parameters;
+    /**
+     * The markup of this macro, rendered once when it is built; the same table of
+     * contents is typically written to many pages.
+     */
+    private final String markup;
 
     /**
      * Constructor.
@@ -235,24 +259,47 @@ public class TableOfContentsMacro {
      * @param builder the factory object used to build an instance of this class.
      */
     public TableOfContentsMacro(final Builder builder) {
-        this.parameters = builder.parameters;
+        this(builder.parameters);
     }
 
     /**
-     * @return a String containing the XML markup for the confluence storage format.
+     * Constructor, used when the parameters have been obtained from existing markup.
+     *
+     * @param parameters the parameters of the macro, which are copied.
      */
-    public String toMarkup() {
-        final StringBuilder sb = new StringBuilder();
-        sb.append("<ac:structured-macro ac:name=\"toc\">");
+    TableOfContentsMacro(final EnumMap<Parameters, String> parameters) {
+        this.parameters = new EnumMap<>(parameters);
+        final StorageWriter writer = new StorageWriter();
+        writer.startMacro("toc");
         for (Map.Entry<Parameters, String> entry : parameters.entrySet()) {
-            sb.append("<ac:parameter ac:name=\"");
-            sb.append(entry.getKey().toString());
-            sb.append("\">");
-            sb.append(entry.getValue());
-            sb.append("</ac:parameter>");
+            writer.parameter(entry.getKey().toString(), entry.getValue());
         }
-        sb.append("</ac:structured-macro>");
-        return sb.toString();
+        writer.endMacro();
+        this.markup = writer.toString();
+    }
+
+    /**
+     * @return an unmodifiable view of the parameters of this macro.
+     */
+    public Map<Parameters, String> getParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * @return a String containing the XML markup for the confluence storage format.
+     */
+    public String toMarkup() {
+        return markup;
+    }
+
+    /**
+     * Writes the XML markup for the confluence storage format to {@code writer}.
+     *
+     * @param writer the {@code StorageWriter} to write to.
+     */
+    @Override
+    public void toMarkup(final StorageWriter writer) {
+        writer.raw(markup);
     }
 
     /**
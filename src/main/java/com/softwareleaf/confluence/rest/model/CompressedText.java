@@ -0,0 +1,133 @@
+package com.softwareleaf.confluence.rest.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Text held as deflated UTF-8, and inflated each time it is read.
+ * <p>Storage format XHTML is verbose and repetitive, and typically deflates to a tenth of
+ * its size; held as a {@code String} it takes two bytes per character. So a long-running
+ * process holding many bodies, such as a mirror, can shrink them by an order of
+ * magnitude, at the cost of inflating a body whenever it is read.
+ *
+ * @author Jonathon Hope
+ * @see Storage#compact()
+ */
+public final class CompressedText implements Supplier<String> {
+
+    private final byte[] deflated;
+    /**
+     * The length of the text, in bytes of UTF-8.
+     */
+    private final int length;
+
+    private CompressedText(final byte[] deflated, final int length) {
+        this.deflated = deflated;
+        this.length = length;
+    }
+
+    /**
+     * @param text the text to compress.
+     * @return the compressed text.
+     */
+    public static CompressedText of(final String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new CompressedText(deflate(bytes), bytes.length);
+    }
+
+    /**
+     * @param deflated the bytes returned by {@link #toDeflated()}.
+     * @param length   the length returned by {@link #getLength()}.
+     * @return the compressed text.
+     */
+    public static CompressedText fromDeflated(final byte[] deflated, final int length) {
+        return new CompressedText(Objects.requireNonNull(deflated), length);
+    }
+
+    /**
+     * @return the text; inflated afresh on each call.
+     * @throws IllegalStateException if the deflated bytes are corrupt.
+     */
+    @Override
+    public String get() {
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(deflated);
+            final byte[] bytes = new byte[length];
+            int inflated = 0;
+            while (inflated < length) {
+                final int n = inflater.inflate(bytes, inflated, length - inflated);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Compressed text is truncated.");
+                }
+                inflated += n;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed text is corrupt.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return a copy of the deflated bytes, without a zlib header or checksum.
+     */
+    public byte[] toDeflated() {
+        return deflated.clone();
+    }
+
+    /**
+     * @return the length of the text, in bytes of UTF-8.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the length of the text compressed, in bytes.
+     */
+    public int getCompressedLength() {
+        return deflated.length;
+    }
+
+    private static byte[] deflate(final byte[] bytes) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            // most bodies deflate to well under half their size.
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CompressedText that = (CompressedText) o;
+        return length == that.length && Arrays.equals(deflated, that.deflated);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * length + Arrays.hashCode(deflated);
+    }
+}
@@ -41,9 +41,15 @@ public class History {
         PREVIOUS_VERSION,
         LAST_UPDATED;
 
+        private final String value;
+
+        Expandables() {
+            this.value = StringUtils.convertToCamelCase(name());
+        }
+
         @Override
         public String toString() {
-            return StringUtils.convertToCamelCase(name());
+            return value;
         }
     }
 
@@ -11,6 +11,21 @@ import com.google.gson.annotations.SerializedName;
 public class SpaceResultList {
     @SerializedName("results")
     private Space[] spaces;
+    /**
+     * The start index.
+     */
+    private int start;
+    /**
+     * The limit applied by the server, which may be lower than that requested.
+     */
+    private int limit;
+    /**
+     * The size of the collection returned.
+     */
+    private int size;
+
+    public SpaceResultList() {
+    }
 
     /**
      * Constructor.
@@ -30,4 +45,28 @@ public class SpaceResultList {
     public void setSpaces(Space[] spaces) {
         this.spaces = spaces;
     }
+
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
 }
@@ -1,6 +1,16 @@
 package com.softwareleaf.confluence.rest.model;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Represents the storage container within a {@code Content.body}
@@ -9,11 +19,17 @@ import java.util.Objects;
  * @see <a href="https://confluence.atlassian.com/display/DOC/Confluence+Storage+Format">
  * Confluence Storage Format</a>
  */
+@JsonAdapter(Storage.StorageAdapter.class)
 public class Storage {
     /**
      * The markup or html of this {@code Storage}.
      */
     private String value;
+    /**
+     * Supplies the value when it is held elsewhere, such as in a cache; {@code null} when
+     * the value is held in {@link #value}.
+     */
+    private transient Supplier<String> source;
 
     /**
      * The representation. The confluence REST API docs are unclear as to what the
@@ -33,9 +49,15 @@ public class Storage {
         STORAGE,
         WIKI;
 
+        private final String value;
+
+        Representation() {
+            this.value = name().toLowerCase(Locale.ROOT);
+        }
+
         @Override
         public String toString() {
-            return name().toLowerCase();
+            return value;
         }
     }
 
@@ -50,12 +72,66 @@ public class Storage {
         this.representation = representation;
     }
 
+    /**
+     * Creates a {@code Storage} whose value is held elsewhere, and obtained from
+     * {@code source} each time it is read; the source may cache the value itself.
+     *
+     * @param source         supplies the markup or HTML.
+     * @param representation the type of representation.
+     * @return a new {@code Storage}.
+     */
+    public static Storage lazy(final Supplier<String> source, final String representation) {
+        final Storage storage = new Storage(null, representation);
+        storage.source = Objects.requireNonNull(source);
+        return storage;
+    }
+
+    /**
+     * Creates a {@code Storage} whose value is held compressed, and inflated each time it
+     * is read.
+     *
+     * @param value          the markup or HTML.
+     * @param representation the type of representation.
+     * @return a new {@code Storage}.
+     * @see CompressedText
+     */
+    public static Storage compact(final String value, final String representation) {
+        return value == null ? new Storage(null, representation) : lazy(CompressedText.of(value), representation);
+    }
+
+    /**
+     * Returns a copy of this {@code Storage} with its value held compressed, such as
+     * before holding content for a long time. Each call to {@link #getValue()} on the copy
+     * inflates the value afresh, so callers reading it repeatedly should keep the result.
+     * <p>Example Usage:
+     * <pre>{@code
+     *     Body body = content.getBody();
+     *     body.setStorage(body.getStorage().compact());
+     * }</pre>
+     *
+     * @return a compact copy, or {@code this} if already compact.
+     */
+    public Storage compact() {
+        if (source instanceof CompressedText) {
+            return this;
+        }
+        return compact(getValue(), representation);
+    }
+
+    /**
+     * @return the value compressed, if this {@code Storage} is compact.
+     */
+    public Optional<CompressedText> getCompressedValue() {
+        return source instanceof CompressedText ? Optional.of((CompressedText) source) : Optional.empty();
+    }
+
     public String getValue() {
-        return value;
+        return source == null ? value : source.get();
     }
 
     public void setValue(String value) {
         this.value = value;
+        this.source = null;
     }
 
     public String getRepresentation() {
@@ -75,12 +151,53 @@ public class Storage {
             return false;
         }
         Storage storage = (Storage) o;
-        return Objects.equals(value, storage.value) &&
+        return Objects.equals(getValue(), storage.getValue()) &&
                 Objects.equals(representation, storage.representation);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value, representation);
+        return Objects.hash(getValue(), representation);
+    }
+
+    /**
+     * (De)serializes {@code Storage} through {@link #getValue()}, so that a value held
+     * elsewhere is written as if it were held in the field.
+     */
+    static final class StorageAdapter extends TypeAdapter<Storage> {
+        @Override
+        public void write(final JsonWriter out, final Storage storage) throws IOException {
+            if (storage == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("value").value(storage.getValue());
+            out.name("representation").value(storage.representation);
+            out.endObject();
+        }
+
+        @Override
+        public Storage read(final JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String value = null;
+            String representation = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                final String name = in.nextName();
+                if (name.equals("value") && in.peek() != JsonToken.NULL) {
+                    value = in.nextString();
+                } else if (name.equals("representation") && in.peek() != JsonToken.NULL) {
+                    representation = in.nextString();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Storage(value, representation);
+        }
     }
 }
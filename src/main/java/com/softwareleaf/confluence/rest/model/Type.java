@@ -1,5 +1,7 @@
 package com.softwareleaf.confluence.rest.model;
 
+import java.util.Locale;
+
 /**
  * Represents the type of a piece of content.
  * <p>Example
@@ -22,11 +24,17 @@ public enum Type {
     COMMENT,
     PAGE;
 
+    private final String value;
+
+    Type() {
+        this.value = name().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * We override this here to
      */
     @Override
     public String toString() {
-        return super.toString().toLowerCase();
+        return value;
     }
 }
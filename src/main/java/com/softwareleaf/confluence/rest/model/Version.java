@@ -25,10 +25,25 @@ public class Version {
      * An optional message.
      */
     private String message;
+    /**
+     * The version number, starting at 1; an update must give the number of the
+     * version it creates, which is one more than that of the latest version; or
+     * {@code null}, and so omitted when serialized, if unknown.
+     */
+    private Integer number;
 
     public Version() {
     }
 
+    /**
+     * Constructor.
+     *
+     * @param number the version number.
+     */
+    public Version(int number) {
+        this.number = number;
+    }
+
     public CreatedBy getBy() {
         return by;
     }
@@ -53,6 +68,14 @@ public class Version {
         this.message = message;
     }
 
+    public Integer getNumber() {
+        return number;
+    }
+
+    public void setNumber(Integer number) {
+        this.number = number;
+    }
+
     // equals and hashcode
 
     @Override
@@ -62,8 +85,9 @@ public class Version {
 
         Version version = (Version) o;
 
+        if (number != null ? !number.equals(version.number) : version.number != null) return false;
         if (by != null ? !by.equals(version.by) : version.by != null) return false;
-        if (!when.equals(version.when)) return false;
+        if (when != null ? !when.equals(version.when) : version.when != null) return false;
         return !(message != null ? !message.equals(version.message) : version.message != null);
 
     }
@@ -71,8 +95,9 @@ public class Version {
     @Override
     public int hashCode() {
         int result = by != null ? by.hashCode() : 0;
-        result = 31 * result + when.hashCode();
+        result = 31 * result + (when != null ? when.hashCode() : 0);
         result = 31 * result + (message != null ? message.hashCode() : 0);
+        result = 31 * result + (number != null ? number.hashCode() : 0);
         return result;
     }
 
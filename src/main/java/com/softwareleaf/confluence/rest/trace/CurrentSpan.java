@@ -0,0 +1,32 @@
+package com.softwareleaf.confluence.rest.trace;
+
+/**
+ * Holds the current span of each thread.
+ *
+ * @author Jonathon Hope
+ */
+final class CurrentSpan {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private CurrentSpan() {
+    }
+
+    static Span get() {
+        final Span span = CURRENT.get();
+        return span == null ? Span.NOOP : span;
+    }
+
+    static Scope set(final Span span) {
+        final Span previous = CURRENT.get();
+        CURRENT.set(span);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.softwareleaf.confluence.rest.trace;
+
+/**
+ * The period during which a span is {@linkplain Span#makeCurrent() current} on a thread.
+ *
+ * @author Jonathon Hope
+ */
+public interface Scope extends AutoCloseable {
+
+    /**
+     * Restores the span that was current before; it must be closed on the thread that
+     * opened it.
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,108 @@
+package com.softwareleaf.confluence.rest.trace;
+
+/**
+ * A timed operation, such as a single HTTP call, or a crawl of a space made of many; the
+ * calls made while a span is {@linkplain #makeCurrent() current} become its children.
+ * <p>The shape of this interface follows the OpenTelemetry tracing API, so that a span of
+ * any OpenTelemetry-compatible tracer can be adapted to it in a few lines; attribute
+ * names follow the OpenTelemetry semantic conventions.
+ * <p>Implementations must be thread safe, as a span may be ended on another thread than
+ * the one that started it.
+ *
+ * @author Jonathon Hope
+ * @see Tracer
+ */
+public interface Span {
+
+    /**
+     * A span that records nothing.
+     */
+    Span NOOP = new Span() {
+        @Override
+        public Span setAttribute(final String key, final String value) {
+            return this;
+        }
+
+        @Override
+        public Span setAttribute(final String key, final long value) {
+            return this;
+        }
+
+        @Override
+        public Span recordException(final Throwable exception) {
+            return this;
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    /**
+     * The role of a span, as in OpenTelemetry.
+     */
+    enum Kind {
+        /**
+         * An operation within the client, such as a crawl.
+         */
+        INTERNAL,
+        /**
+         * A request to the server.
+         */
+        CLIENT
+    }
+
+    /**
+     * @param key   the attribute name.
+     * @param value the attribute value.
+     * @return {@code this}.
+     */
+    Span setAttribute(String key, String value);
+
+    /**
+     * @param key   the attribute name.
+     * @param value the attribute value.
+     * @return {@code this}.
+     */
+    Span setAttribute(String key, long value);
+
+    /**
+     * Records that the operation failed.
+     *
+     * @param exception the failure.
+     * @return {@code this}.
+     */
+    Span recordException(Throwable exception);
+
+    /**
+     * Ends the span; it is called exactly once.
+     */
+    void end();
+
+    /**
+     * Makes this span the parent of the spans started on this thread, until the returned
+     * scope is closed.
+     * <p>Example Usage:
+     * <pre>{@code
+     *     Span export = tracer.startSpan("export", Span.Kind.INTERNAL, Span.current());
+     *     try (Scope scope = export.makeCurrent()) {
+     *         client.streamSpaceContent("DEV").forEach(exporter::write);
+     *     } finally {
+     *         export.end();
+     *     }
+     * }</pre>
+     *
+     * @return the scope, which restores the previous span when closed.
+     */
+    default Scope makeCurrent() {
+        return CurrentSpan.set(this);
+    }
+
+    /**
+     * @return the span current on this thread, or {@link #NOOP} if there is none.
+     */
+    static Span current() {
+        return CurrentSpan.get();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.softwareleaf.confluence.rest.trace;
+
+/**
+ * Starts the spans of a {@code ConfluenceClient}: a span of kind {@link Span.Kind#CLIENT}
+ * for each HTTP call, and a span of kind {@link Span.Kind#INTERNAL} for each operation made
+ * of several calls, such as streaming the content of a space a page at a time, or updating
+ * content with retries; the calls are children of the operation.
+ * <p>HTTP spans carry the attributes {@code http.request.method}, {@code url.full},
+ * {@code server.address}, {@code server.port}, {@code http.request.body.size},
+ * {@code http.response.status_code}, {@code http.response.body.size} and
+ * {@code error.type}, and end once the response body has been read.
+ * <p>By default, the client traces nothing. To export spans through OpenTelemetry,
+ * adapt its tracer, for example:
+ * <pre>{@code
+ *     io.opentelemetry.api.trace.Tracer otel = openTelemetry.getTracer("confluence-client");
+ *     Tracer tracer = (name, kind, parent) -> {
+ *         SpanBuilder builder = otel.spanBuilder(name)
+ *                 .setSpanKind(kind == Span.Kind.CLIENT ? SpanKind.CLIENT : SpanKind.INTERNAL);
+ *         if (parent instanceof OtelSpan) {
+ *             builder.setParent(Context.current().with(((OtelSpan) parent).delegate));
+ *         }
+ *         return new OtelSpan(builder.startSpan()); // delegates each method
+ *     };
+ *     ConfluenceClient client = ConfluenceClient.builder()
+ *             // other methods omitted for brevity...
+ *             .tracer(tracer)
+ *             .build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see com.softwareleaf.confluence.rest.ConfluenceClient.Builder#tracer(Tracer)
+ */
+@FunctionalInterface
+public interface Tracer {
+
+    /**
+     * A tracer that records nothing.
+     */
+    Tracer NOOP = (name, kind, parent) -> Span.NOOP;
+
+    /**
+     * Starts a span.
+     *
+     * @param name   the name of the operation.
+     * @param kind   the role of the span.
+     * @param parent the parent span, or {@link Span#NOOP} if there is none.
+     * @return the started span.
+     */
+    Span startSpan(String name, Span.Kind kind, Span parent);
+
+}
@@ -0,0 +1,275 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import com.softwareleaf.confluence.rest.auth.AuthProvider;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@code Transport} decorator that authenticates requests with an {@link AuthProvider},
+ * and reuses the session the server establishes.
+ * <p>Confluence authenticates the credentials of a request that has no session, such as
+ * by checking a password hash, and starts a session for it; unless the session cookie
+ * ({@code JSESSIONID}) is sent back, every request pays for both. So the cookies each host
+ * sets are kept and sent with later requests to that host, which the server then
+ * authenticates by the session alone. The credentials are still sent, so that a request
+ * whose session has lapsed is authenticated afresh, rather than treated as anonymous.
+ * <p>When a request is rejected with a {@code 401} status, its credentials are
+ * {@linkplain AuthProvider#invalidate(String) invalidated}, and it is retried once, if
+ * that could succeed: without the session, if one was sent, or else with the new
+ * credentials, if the provider then {@linkplain AuthProvider#getAuthorizationAsync()
+ * supplies} different ones. Otherwise, such as for a wrong password, the {@code 401} is
+ * returned, rather than counted against the user twice by the server. Nor is a request
+ * retried if its body is of unknown length, such as one streamed from a reader, which has
+ * been consumed by the first attempt.
+ *
+ * @author Jonathon Hope
+ * @see com.softwareleaf.confluence.rest.ConfluenceClient.Builder#authProvider(AuthProvider)
+ */
+public class AuthenticatingTransport implements Transport {
+
+    private final Transport delegate;
+    private final AuthProvider authProvider;
+    private final boolean reuseSessions;
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+    /**
+     * The last {@code Authorization} header sent, reused while the provider's value is unchanged.
+     */
+    private volatile Header authorization;
+
+    /**
+     * Constructor; sessions are reused.
+     *
+     * @param delegate     the transport to send requests with.
+     * @param authProvider supplies the credentials of each request.
+     */
+    public AuthenticatingTransport(final Transport delegate, final AuthProvider authProvider) {
+        this(delegate, authProvider, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate      the transport to send requests with.
+     * @param authProvider  supplies the credentials of each request.
+     * @param reuseSessions whether to keep the cookies each host sets, and send them back.
+     */
+    public AuthenticatingTransport(final Transport delegate, final AuthProvider authProvider,
+                                   final boolean reuseSessions) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.authProvider = Objects.requireNonNull(authProvider);
+        this.reuseSessions = reuseSessions;
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        // the caller may be a transport's own thread, such as one failing a read over to
+        // another node, so the credentials are awaited without blocking it.
+        final CompletableFuture<String> value;
+        try {
+            value = authProvider.getAuthorizationAsync();
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+            return response;
+        }
+        value.whenComplete((v, failure) -> {
+            if (failure != null) {
+                response.completeExceptionally(unwrap(failure));
+            } else if (!response.isDone()) {
+                send(request, response, authorizationHeader(v), true);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * @param host a host name, with its port if not the default.
+     * @return whether a session with the host is being reused.
+     */
+    public boolean hasSession(final String host) {
+        return sessions.containsKey(host);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    // a body of unknown length may be streamed, and so cannot be sent twice.
+    private static boolean isReplayable(final Request request) {
+        return request.getBody() == null || request.getBody().length() >= 0;
+    }
+
+    private void send(final Request request, final CompletableFuture<Response> response,
+                      final Header credentials, final boolean mayRetry) {
+        final String host = Transports.hostOf(request.getUrl());
+        final Session session = reuseSessions ? sessions.get(host) : null;
+        final CompletableFuture<Response> sent;
+        try {
+            final List<Header> headers = new ArrayList<>(request.getHeaders().size() + 2);
+            headers.addAll(request.getHeaders());
+            if (credentials != null) {
+                headers.add(credentials);
+            }
+            if (session != null) {
+                headers.add(session.cookie);
+            }
+            sent = delegate.execute(new Request(request.getMethod(), request.getUrl(), headers, request.getBody()));
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+            return;
+        }
+        sent.whenComplete((r, failure) -> {
+            if (failure != null) {
+                response.completeExceptionally(failure);
+                return;
+            }
+            if (r.getStatus() == 401 && mayRetry && isReplayable(request)) {
+                retry(request, response, r, credentials, session != null);
+                return;
+            }
+            if (reuseSessions) {
+                remember(host, r);
+            }
+            Transports.completeOrDiscard(response, r);
+        });
+        Transports.propagateCancel(response, sent);
+    }
+
+    // retries a rejected request, unless it would be rejected again: that is, if it was sent
+    // without a session, and the provider has no other credentials once these are invalidated.
+    private void retry(final Request request, final CompletableFuture<Response> response, final Response rejected,
+                       final Header credentials, final boolean hadSession) {
+        sessions.remove(Transports.hostOf(request.getUrl()));
+        final CompletableFuture<String> next;
+        try {
+            if (credentials != null) {
+                authProvider.invalidate(credentials.getValue());
+            }
+            next = authProvider.getAuthorizationAsync();
+        } catch (RuntimeException e) {
+            Transports.discard(rejected);
+            response.completeExceptionally(e);
+            return;
+        }
+        next.whenComplete((value, failure) -> {
+            if (failure != null) {
+                Transports.discard(rejected);
+                response.completeExceptionally(unwrap(failure));
+                return;
+            }
+            final boolean unchanged = credentials == null ? value == null
+                    : credentials.getValue().equals(value);
+            if (unchanged && !hadSession) {
+                Transports.completeOrDiscard(response, rejected);
+                return;
+            }
+            Transports.discard(rejected);
+            if (!response.isDone()) {
+                send(request, response, authorizationHeader(value), false);
+            }
+        });
+    }
+
+    // a failure as thrown by the provider, rather than wrapped by a dependent future.
+    private static Throwable unwrap(final Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    // a provider's value, as a header; allocated only when the value changes.
+    private Header authorizationHeader(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final Header last = authorization;
+        if (last != null && last.getValue().equals(value)) {
+            return last;
+        }
+        final Header header = new Header("Authorization", value);
+        authorization = header;
+        return header;
+    }
+
+    // keeps the cookies set by a response, for later requests to the same host.
+    private void remember(final String host, final Response response) {
+        List<String> setCookies = null;
+        for (Header header : response.getHeaders()) {
+            if (header.getName() != null && header.getName().equalsIgnoreCase("Set-Cookie")) {
+                if (setCookies == null) {
+                    setCookies = new ArrayList<>(2);
+                }
+                setCookies.add(header.getValue());
+            }
+        }
+        if (setCookies == null) {
+            return;
+        }
+        final List<String> cookies = setCookies;
+        sessions.compute(host, (h, session) -> {
+            final Map<String, String> updated = new LinkedHashMap<>(
+                    session == null ? Collections.emptyMap() : session.cookies);
+            for (String setCookie : cookies) {
+                apply(updated, setCookie);
+            }
+            return updated.isEmpty() ? null : new Session(updated);
+        });
+    }
+
+    // applies a Set-Cookie header to a cookie jar; path, domain and expiry dates are ignored,
+    // as a client talks to a single application per host.
+    private static void apply(final Map<String, String> cookies, final String setCookie) {
+        final String[] parts = setCookie.split(";");
+        final int equals = parts[0].indexOf('=');
+        if (equals <= 0) {
+            return;
+        }
+        final String name = parts[0].substring(0, equals).trim();
+        final String value = parts[0].substring(equals + 1).trim();
+        boolean deleted = value.isEmpty();
+        for (int i = 1; i < parts.length; i++) {
+            final String attribute = parts[i].trim().toLowerCase(Locale.ROOT);
+            if (attribute.startsWith("max-age=") && attribute.substring(8).trim().matches("-?0+|-\\d+")) {
+                deleted = true;
+            }
+        }
+        if (deleted) {
+            cookies.remove(name);
+        } else {
+            cookies.put(name, value);
+        }
+    }
+
+    /**
+     * The cookies set by a host, and the header that sends them back.
+     */
+    private static final class Session {
+        private final Map<String, String> cookies;
+        private final Header cookie;
+
+        Session(final Map<String, String> cookies) {
+            this.cookies = Collections.unmodifiableMap(cookies);
+            final StringBuilder value = new StringBuilder();
+            for (Map.Entry<String, String> entry : cookies.entrySet()) {
+                if (value.length() > 0) {
+                    value.append("; ");
+                }
+                value.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            this.cookie = new Header("Cookie", value.toString());
+        }
+    }
+
+}
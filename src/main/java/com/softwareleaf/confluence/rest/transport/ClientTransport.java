@@ -0,0 +1,47 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@code Transport} over a Retrofit {@link Client}, such as the {@code OkClient} of
+ * OkHttp 2 that Retrofit uses by default.
+ * <p>The client is synchronous, so requests are executed on the calling thread, and the
+ * future returned is already complete. This is how a {@code Client} given to
+ * {@link com.softwareleaf.confluence.rest.ConfluenceClient.Builder#supplyClient(Client)}
+ * is used, so that it can be decorated by other transports.
+ * <p>As the calling thread does the I/O, inside whatever monitors the client holds, this
+ * transport is not suited to virtual threads; OkHttp 2, for one, would pin their carriers.
+ *
+ * @author Jonathon Hope
+ */
+public class ClientTransport implements Transport {
+
+    private final Client client;
+
+    /**
+     * Constructor.
+     *
+     * @param client the client to execute requests with.
+     */
+    public ClientTransport(final Client client) {
+        this.client = Objects.requireNonNull(client);
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        try {
+            response.complete(client.execute(request));
+        } catch (IOException | RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
+
+}
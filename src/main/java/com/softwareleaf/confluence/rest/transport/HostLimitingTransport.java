@@ -0,0 +1,177 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code Transport} decorator that bounds the number of requests in flight to each host.
+ * <p>Requests beyond the bound are queued, in order, and sent as earlier requests
+ * complete. Queuing never blocks the calling thread, nor holds a monitor: callers wait
+ * only on the returned future, which parks them. So a synchronous client on this transport
+ * can be called from any number of virtual threads, which then queue here rather than
+ * each holding a connection; provided the transport beneath returns responses that are
+ * already read, as an {@link OkHttp3Transport} does that {@linkplain
+ * OkHttp3Transport.Builder#bufferResponses(boolean) buffers responses}, their carrier
+ * threads are not pinned either.
+ * <p>A request that finds a permit free is sent by its caller. A queued request is sent
+ * by the thread that releases its permit, if the transport beneath does not block; but
+ * if it does, such as a {@link ClientTransport}, queued requests are sent on threads of
+ * their own, as a thread sending another caller's request would otherwise wait for it.
+ * <p>A request holds its permit until its response headers are received.
+ *
+ * @author Jonathon Hope
+ * @see com.softwareleaf.confluence.rest.ConfluenceClient.Builder#maxRequestsPerHost(int)
+ */
+public class HostLimitingTransport implements Transport {
+
+    /**
+     * Sends queued requests to a delegate that blocks; threads are only kept while in use,
+     * and there are at most as many as there are permits.
+     */
+    private static final Executor BLOCKING_SENDS = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("confluence-host-limit-%d")
+            .setDaemon(true)
+            .build());
+
+    private final Transport delegate;
+    private final int maxRequestsPerHost;
+    private final Executor queuedSends;
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor, for a delegate that does not block, such as an {@link OkHttp3Transport}.
+     *
+     * @param delegate           the transport to send requests with.
+     * @param maxRequestsPerHost the most requests in flight to a single host.
+     */
+    public HostLimitingTransport(final Transport delegate, final int maxRequestsPerHost) {
+        this(delegate, maxRequestsPerHost, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate           the transport to send requests with.
+     * @param maxRequestsPerHost the most requests in flight to a single host.
+     * @param delegateBlocks     whether the delegate executes requests on the calling
+     *                           thread, as a {@link ClientTransport} does.
+     */
+    public HostLimitingTransport(final Transport delegate, final int maxRequestsPerHost,
+                                 final boolean delegateBlocks) {
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("maxRequestsPerHost must be at least 1.");
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.queuedSends = delegateBlocks ? BLOCKING_SENDS : Runnable::run;
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        final Pending pending = new Pending(request);
+        final Host host = hosts.computeIfAbsent(Transports.hostOf(request.getUrl()), h -> new Host());
+        if (host.waiting.isEmpty() && host.permits.tryAcquire()) {
+            // nothing is queued ahead of it, so the caller sends it.
+            host.send(pending);
+        } else {
+            host.waiting.add(pending);
+            host.drain();
+        }
+        return pending.response;
+    }
+
+    /**
+     * @param host a host name, with its port if not the default.
+     * @return the number of requests waiting for a permit to the host.
+     */
+    public int getQueueLength(final String host) {
+        final Host state = hosts.get(host);
+        return state == null ? 0 : state.waiting.size();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * A request waiting for a permit.
+     */
+    private static final class Pending {
+        private final Request request;
+        private final CompletableFuture<Response> response = new CompletableFuture<>();
+
+        Pending(final Request request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * The permits and queue of a single host.
+     */
+    private final class Host {
+        private final Semaphore permits = new Semaphore(maxRequestsPerHost);
+        private final Queue<Pending> waiting = new ConcurrentLinkedQueue<>();
+        /**
+         * The number of drains requested but not yet run; one thread drains at a time, so
+         * that a delegate which completes synchronously does not recurse.
+         */
+        private final AtomicInteger drains = new AtomicInteger();
+
+        // sends queued requests while permits are available. Every change to the queue or
+        // the permits is followed by a drain, so a request cannot be left waiting.
+        void drain() {
+            if (drains.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!waiting.isEmpty() && permits.tryAcquire()) {
+                    final Pending next = waiting.poll();
+                    if (next == null || next.response.isDone()) {
+                        // lost a race for the last request, or it was cancelled while waiting.
+                        permits.release();
+                        continue;
+                    }
+                    queuedSends.execute(() -> send(next));
+                }
+                missed = drains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void send(final Pending pending) {
+            final CompletableFuture<Response> sent;
+            try {
+                sent = delegate.execute(pending.request);
+            } catch (RuntimeException e) {
+                permits.release();
+                pending.response.completeExceptionally(e);
+                drain();
+                return;
+            }
+            sent.whenComplete((response, failure) -> {
+                permits.release();
+                if (failure != null) {
+                    pending.response.completeExceptionally(failure);
+                } else {
+                    Transports.completeOrDiscard(pending.response, response);
+                }
+                drain();
+            });
+            Transports.propagateCancel(pending.response, sent);
+        }
+    }
+
+}
@@ -0,0 +1,371 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@code Transport} decorator that spreads requests across the nodes of a cluster, such
+ * as a Confluence Data Center, each reached at its own base URL.
+ * <p>Requests are made to the first base URL, which the client is built with; each is
+ * redirected to the node chosen by the {@link Strategy}. A node that fails a number of
+ * requests in a row, by not responding or with a 502, 503 or 504 status, is ejected for a
+ * while, after which it is tried again. A read ({@code GET} or {@code HEAD}) that fails is
+ * retried on each of the other nodes in turn, so a node going down is not seen by callers;
+ * other requests are not retried, as they may already have taken effect.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     ConfluenceClient client = ConfluenceClient.builder()
+ *             // other methods omitted for brevity...
+ *             .baseURLs("https://node1.example.com", "https://node2.example.com")
+ *             .build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ * @see com.softwareleaf.confluence.rest.ConfluenceClient.Builder#baseURLs(String...)
+ */
+public class LoadBalancingTransport implements Transport {
+
+    /**
+     * How a node is chosen for each request.
+     */
+    public enum Strategy {
+        /**
+         * The node with the fewest requests in flight; ties are broken in turn.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * The node with the lowest average latency, weighted by its requests in flight;
+         * this favours faster nodes, where the nodes of a cluster differ.
+         */
+        LATENCY_EWMA
+    }
+
+    /**
+     * The default number of consecutive failures after which a node is ejected.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    /**
+     * The default time for which a node is ejected.
+     */
+    public static final Duration DEFAULT_EJECTION_TIME = Duration.ofSeconds(30);
+    /**
+     * The weight of each new latency in the moving average.
+     */
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final Transport delegate;
+    private final Strategy strategy;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final Endpoint[] endpoints;
+    private final AtomicInteger turn = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private LoadBalancingTransport(final Builder builder) {
+        this.delegate = builder.delegate;
+        this.strategy = builder.strategy;
+        this.failureThreshold = builder.failureThreshold;
+        this.ejectionNanos = builder.ejectionTime.toNanos();
+        this.endpoints = new Endpoint[builder.baseURLs.size()];
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = new Endpoint(i, trimSlash(builder.baseURLs.get(i)));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        final String primary = endpoints[0].baseURL;
+        if (!request.getUrl().startsWith(primary)) {
+            return delegate.execute(request);
+        }
+        final Exchange exchange = new Exchange(request, request.getUrl().substring(primary.length()));
+        exchange.attempt(null, null);
+        return exchange.response;
+    }
+
+    /**
+     * @return the base URLs of the nodes not currently ejected.
+     */
+    public List<String> getHealthyEndpoints() {
+        final long now = System.nanoTime();
+        final List<String> healthy = new ArrayList<>(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected(now)) {
+                healthy.add(endpoint.baseURL);
+            }
+        }
+        return healthy;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    // the best node not yet tried; an ejected node only if allowed and none other remains.
+    private Endpoint choose(final boolean[] tried, final boolean allowEjected) {
+        final long now = System.nanoTime();
+        final int start = Math.floorMod(turn.getAndIncrement(), endpoints.length);
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        Endpoint soonest = null;
+        for (int k = 0; k < endpoints.length; k++) {
+            final Endpoint endpoint = endpoints[(start + k) % endpoints.length];
+            if (tried[endpoint.index]) {
+                continue;
+            }
+            if (endpoint.isEjected(now)) {
+                if (soonest == null || endpoint.ejectedUntil - soonest.ejectedUntil < 0) {
+                    soonest = endpoint;
+                }
+                continue;
+            }
+            final double score = endpoint.score(strategy);
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        return best != null || !allowEjected ? best : soonest;
+    }
+
+    private static boolean isRead(final Request request) {
+        return request.getMethod().equals("GET") || request.getMethod().equals("HEAD");
+    }
+
+    private static boolean isUnavailable(final Response response) {
+        return response.getStatus() == 502 || response.getStatus() == 503 || response.getStatus() == 504;
+    }
+
+    private static String trimSlash(final String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * A request, and its attempts on one node after another.
+     */
+    private final class Exchange {
+        private final Request request;
+        private final String path;
+        private final boolean[] tried = new boolean[endpoints.length];
+        private final CompletableFuture<Response> response = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<Response>> current = new AtomicReference<>();
+
+        Exchange(final Request request, final String path) {
+            this.request = request;
+            this.path = path;
+            // only the attempt in flight is cancelled.
+            Transports.propagateCancel(response, () -> {
+                final CompletableFuture<Response> attempt = current.get();
+                if (attempt != null) {
+                    attempt.cancel(true);
+                }
+            });
+        }
+
+        // makes the next attempt, or else completes with the outcome of the last.
+        void attempt(final Response lastResponse, final Throwable lastFailure) {
+            final boolean first = lastResponse == null && lastFailure == null;
+            final Endpoint endpoint = response.isDone() ? null : choose(tried, first);
+            if (endpoint == null) {
+                if (lastFailure != null) {
+                    response.completeExceptionally(lastFailure);
+                } else {
+                    Transports.completeOrDiscard(response, lastResponse);
+                }
+                return;
+            }
+            if (lastResponse != null) {
+                Transports.discard(lastResponse);
+            }
+            tried[endpoint.index] = true;
+            final Request redirected = new Request(request.getMethod(), endpoint.baseURL + path,
+                    request.getHeaders(), request.getBody());
+            endpoint.outstanding.incrementAndGet();
+            final long start = System.nanoTime();
+            final CompletableFuture<Response> sent;
+            try {
+                sent = delegate.execute(redirected);
+            } catch (RuntimeException e) {
+                endpoint.outstanding.decrementAndGet();
+                response.completeExceptionally(e);
+                return;
+            }
+            current.set(sent);
+            sent.whenComplete((r, failure) -> {
+                endpoint.outstanding.decrementAndGet();
+                final long now = System.nanoTime();
+                if (failure != null || isUnavailable(r)) {
+                    endpoint.recordFailure(now);
+                    if (isRead(request)) {
+                        attempt(r, failure);
+                    } else if (failure != null) {
+                        response.completeExceptionally(failure);
+                    } else {
+                        Transports.completeOrDiscard(response, r);
+                    }
+                } else {
+                    endpoint.recordSuccess(now - start);
+                    Transports.completeOrDiscard(response, r);
+                }
+            });
+        }
+    }
+
+    /**
+     * A node, and its load and health.
+     */
+    private final class Endpoint {
+        private final int index;
+        private final String baseURL;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        /**
+         * The moving average latency, in nanoseconds, as the bits of a double; NaN until
+         * the first response.
+         */
+        private final AtomicLong latency = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+        /**
+         * The time, by {@code System.nanoTime()}, until which the node is ejected.
+         */
+        private volatile long ejectedUntil = System.nanoTime();
+
+        Endpoint(final int index, final String baseURL) {
+            this.index = index;
+            this.baseURL = baseURL;
+        }
+
+        boolean isEjected(final long now) {
+            return now - ejectedUntil < 0;
+        }
+
+        double score(final Strategy strategy) {
+            if (strategy == Strategy.LEAST_OUTSTANDING) {
+                return outstanding.get();
+            }
+            final double average = Double.longBitsToDouble(latency.get());
+            // a node yet to respond is tried first, to measure it.
+            return Double.isNaN(average) ? 0 : average * (outstanding.get() + 1);
+        }
+
+        void recordSuccess(final long nanos) {
+            failures.set(0);
+            long bits;
+            double updated;
+            do {
+                bits = latency.get();
+                final double average = Double.longBitsToDouble(bits);
+                updated = Double.isNaN(average) ? nanos : average + EWMA_WEIGHT * (nanos - average);
+            } while (!latency.compareAndSet(bits, Double.doubleToRawLongBits(updated)));
+        }
+
+        // once ejected, a node that fails again when it is next tried is ejected again.
+        void recordFailure(final long now) {
+            if (failures.incrementAndGet() >= failureThreshold) {
+                ejectedUntil = now + ejectionNanos;
+            }
+        }
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @param delegate the transport to send requests with.
+     * @return a {@code Builder} instance for chain-building a {@code LoadBalancingTransport}.
+     */
+    public static Builder builder(final Transport delegate) {
+        return new Builder(Objects.requireNonNull(delegate));
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code LoadBalancingTransport}.
+     */
+    public static class Builder {
+        private final Transport delegate;
+        private List<String> baseURLs;
+        private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+        private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        private Duration ejectionTime = DEFAULT_EJECTION_TIME;
+
+        // prevent direct instantiation by external classes.
+        private Builder(final Transport delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param baseURLs the base URL of each node; requests are made to the first.
+         * @return {@code this}.
+         */
+        public Builder baseURLs(final String... baseURLs) {
+            return baseURLs(Arrays.asList(baseURLs));
+        }
+
+        /**
+         * @param baseURLs the base URL of each node; requests are made to the first.
+         * @return {@code this}.
+         */
+        public Builder baseURLs(final List<String> baseURLs) {
+            if (baseURLs.isEmpty()) {
+                throw new IllegalArgumentException("At least one base URL is required.");
+            }
+            this.baseURLs = new ArrayList<>(baseURLs);
+            return this;
+        }
+
+        /**
+         * @param strategy how a node is chosen; by default, {@link Strategy#LEAST_OUTSTANDING}.
+         * @return {@code this}.
+         */
+        public Builder strategy(final Strategy strategy) {
+            this.strategy = Objects.requireNonNull(strategy);
+            return this;
+        }
+
+        /**
+         * @param failureThreshold the number of consecutive failures after which a node is
+         *                         ejected.
+         * @return {@code this}.
+         */
+        public Builder failureThreshold(final int failureThreshold) {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("failureThreshold must be at least 1.");
+            }
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * @param ejectionTime the time for which a failing node is not chosen.
+         * @return {@code this}.
+         */
+        public Builder ejectionTime(final Duration ejectionTime) {
+            this.ejectionTime = Objects.requireNonNull(ejectionTime);
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code LoadBalancingTransport}.
+         */
+        public LoadBalancingTransport build() {
+            if (baseURLs == null) {
+                throw new IllegalStateException("baseURLs must be set.");
+            }
+            return new LoadBalancingTransport(this);
+        }
+    }
+
+}
@@ -0,0 +1,352 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code Transport} on OkHttp 3, which executes requests asynchronously on its own
+ * dispatcher, and multiplexes them over a single HTTP/2 connection per host where the
+ * server supports it, falling back to a pool of HTTP/1.1 connections otherwise.
+ * <p>This is the transport used by a {@code ConfluenceClient} unless another is configured.
+ * <p>Requests are written, and the headers of their responses read, on the dispatcher's
+ * threads; the body of a response is then read by the caller as it is converted. Over
+ * HTTP/2, that read waits in a monitor, which pins the carrier of a virtual thread; a
+ * transport that {@linkplain Builder#bufferResponses(boolean) buffers responses} instead
+ * reads each body on the dispatcher, before the future of its response completes, so that
+ * a synchronous caller only parks while it waits.
+ * <p>The dispatcher's threads are daemon threads, which do not keep the JVM running; a
+ * transport that is no longer needed should still be {@linkplain #close() closed}, to
+ * release its idle connections.
+ * <p>Example Usage:
+ * <pre>{@code
+ *     Transport transport = OkHttp3Transport.builder()
+ *             .maxRequestsPerHost(32)
+ *             .readTimeout(Duration.ofSeconds(60))
+ *             .build();
+ *     ConfluenceClient client = ConfluenceClient.builder()
+ *             // other methods omitted for brevity...
+ *             .transport(transport)
+ *             .build();
+ * }</pre>
+ *
+ * @author Jonathon Hope
+ */
+public class OkHttp3Transport implements Transport {
+    /**
+     * The default limit on concurrent requests.
+     */
+    public static final int DEFAULT_MAX_REQUESTS = 256;
+    /**
+     * The default limit on concurrent requests to a single host; a confluence client
+     * almost always talks to a single host, so this is the limit that matters.
+     */
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+
+    private final OkHttpClient client;
+    private final boolean bufferResponses;
+    /**
+     * Whether the connection pool is this transport's own, rather than shared with a
+     * {@linkplain Builder#client(OkHttpClient) given client}.
+     */
+    private final boolean ownsConnectionPool;
+
+    /**
+     * Constructor.
+     *
+     * @param builder the builder instance to use as a factory.
+     */
+    private OkHttp3Transport(final Builder builder) {
+        final Dispatcher dispatcher = new Dispatcher(newDispatcherExecutor());
+        dispatcher.setMaxRequests(builder.maxRequests);
+        dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+        final OkHttpClient base = builder.client == null ? new OkHttpClient() : builder.client;
+        this.client = base.newBuilder()
+                .dispatcher(dispatcher)
+                .connectTimeout(builder.connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(builder.readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(builder.writeTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.bufferResponses = builder.bufferResponses;
+        this.ownsConnectionPool = builder.client == null;
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        final Call call = client.newCall(toOkHttpRequest(request));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(final Call call, final IOException e) {
+                response.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(final Call call, final okhttp3.Response okResponse) {
+                final Response converted;
+                try {
+                    converted = toRetrofitResponse(request.getUrl(), okResponse, bufferResponses);
+                } catch (IOException e) {
+                    response.completeExceptionally(e);
+                    return;
+                }
+                Transports.completeOrDiscard(response, converted);
+            }
+        });
+        Transports.propagateCancel(response, call::cancel);
+        return response;
+    }
+
+    /**
+     * Stops the dispatcher threads, once the requests in flight complete, and closes any
+     * idle connections; unless the connection pool is shared with a {@linkplain
+     * Builder#client(OkHttpClient) given client}, which is left to close it.
+     */
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        if (ownsConnectionPool) {
+            client.connectionPool().evictAll();
+        }
+    }
+
+    // the same pool as OkHttp's default dispatcher, but of daemon threads.
+    private static ExecutorService newDispatcherExecutor() {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            final Thread thread = new Thread(r, "OkHttp3Transport Dispatcher " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static okhttp3.Request toOkHttpRequest(final Request request) {
+        final okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl());
+        for (Header header : request.getHeaders()) {
+            builder.addHeader(header.getName(), header.getValue() == null ? "" : header.getValue());
+        }
+        RequestBody body = request.getBody() == null ? null : new TypedOutputBody(request.getBody());
+        if (body == null && requiresBody(request.getMethod())) {
+            body = RequestBody.create(null, new byte[0]);
+        }
+        return builder.method(request.getMethod(), body).build();
+    }
+
+    private static boolean requiresBody(final String method) {
+        return method.equals("POST") || method.equals("PUT") || method.equals("PATCH");
+    }
+
+    private static Response toRetrofitResponse(final String url, final okhttp3.Response response,
+                                               final boolean buffer) throws IOException {
+        final List<Header> headers = new ArrayList<>(response.headers().size());
+        for (int i = 0; i < response.headers().size(); i++) {
+            headers.add(new Header(response.headers().name(i), response.headers().value(i)));
+        }
+        final ResponseBody body = response.body();
+        TypedInput input = null;
+        if (body != null && body.contentLength() != 0 && buffer) {
+            // read here, on the dispatcher; bytes() closes the body.
+            final String mimeType = body.contentType() == null ? null : body.contentType().toString();
+            input = new TypedByteArray(mimeType, body.bytes());
+        } else if (body != null && body.contentLength() != 0) {
+            input = new ResponseBodyInput(body);
+        } else if (body != null) {
+            body.close();
+        }
+        return new Response(url, response.code(), response.message(), headers, input);
+    }
+
+    /**
+     * A Retrofit request body, written to OkHttp as it is sent.
+     */
+    private static final class TypedOutputBody extends RequestBody {
+        private final TypedOutput output;
+        private final MediaType mediaType;
+
+        TypedOutputBody(final TypedOutput output) {
+            this.output = output;
+            this.mediaType = output.mimeType() == null ? null : MediaType.parse(output.mimeType());
+        }
+
+        @Override
+        public MediaType contentType() {
+            return mediaType;
+        }
+
+        @Override
+        public long contentLength() {
+            return output.length();
+        }
+
+        // a body of unknown length is streamed from its source, which may not be readable
+        // twice; so OkHttp must not write it again to retry the request or follow a redirect.
+        @Override
+        public boolean isOneShot() {
+            return output.length() < 0;
+        }
+
+        @Override
+        public void writeTo(final BufferedSink sink) throws IOException {
+            output.writeTo(sink.outputStream());
+        }
+    }
+
+    /**
+     * An OkHttp response body, read by Retrofit as it is converted; it is closed once read.
+     */
+    private static final class ResponseBodyInput implements TypedInput {
+        private final ResponseBody body;
+
+        ResponseBodyInput(final ResponseBody body) {
+            this.body = body;
+        }
+
+        @Override
+        public String mimeType() {
+            return body.contentType() == null ? null : body.contentType().toString();
+        }
+
+        @Override
+        public long length() {
+            return body.contentLength();
+        }
+
+        @Override
+        public InputStream in() {
+            return body.byteStream();
+        }
+    }
+
+    /**
+     * Builder factory method.
+     *
+     * @return a {@code Builder} instance for chain-building an {@code OkHttp3Transport}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A class for implementing the Builder Pattern for {@code OkHttp3Transport}.
+     */
+    public static class Builder {
+        private OkHttpClient client;
+        private int maxRequests = DEFAULT_MAX_REQUESTS;
+        private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+        // the same defaults as Retrofit's own clients.
+        private Duration connectTimeout = Duration.ofSeconds(15);
+        private Duration readTimeout = Duration.ofSeconds(20);
+        private Duration writeTimeout = Duration.ofSeconds(20);
+        private boolean bufferResponses;
+
+        // prevent direct instantiation by external classes.
+        private Builder() {
+        }
+
+        /**
+         * Sets an {@code OkHttpClient} to derive the transport's client from, to configure
+         * what this builder does not, such as a proxy or TLS settings. Its connection pool
+         * is shared; its dispatcher and timeouts are not.
+         *
+         * @param client the client.
+         * @return {@code this}.
+         */
+        public Builder client(final OkHttpClient client) {
+            this.client = Objects.requireNonNull(client);
+            return this;
+        }
+
+        /**
+         * @param maxRequests the most requests executed at once; others are queued.
+         * @return {@code this}.
+         */
+        public Builder maxRequests(final int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerHost the most requests executed at once against a single
+         *                           host; others are queued.
+         * @return {@code this}.
+         */
+        public Builder maxRequestsPerHost(final int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout the time allowed to establish a connection.
+         * @return {@code this}.
+         */
+        public Builder connectTimeout(final Duration connectTimeout) {
+            this.connectTimeout = Objects.requireNonNull(connectTimeout);
+            return this;
+        }
+
+        /**
+         * @param readTimeout the time allowed between reads of a response.
+         * @return {@code this}.
+         */
+        public Builder readTimeout(final Duration readTimeout) {
+            this.readTimeout = Objects.requireNonNull(readTimeout);
+            return this;
+        }
+
+        /**
+         * @param writeTimeout the time allowed between writes of a request.
+         * @return {@code this}.
+         */
+        public Builder writeTimeout(final Duration writeTimeout) {
+            this.writeTimeout = Objects.requireNonNull(writeTimeout);
+            return this;
+        }
+
+        /**
+         * Sets whether the body of each response is read into memory on the dispatcher,
+         * before the response is returned, rather than read by the caller as it is
+         * converted. The caller then does no I/O of its own, so it can be a virtual thread
+         * without pinning its carrier, even over HTTP/2; but no response is converted
+         * until it has been received in full.
+         *
+         * @param bufferResponses whether to buffer responses; {@code false} by default.
+         * @return {@code this}.
+         */
+        public Builder bufferResponses(final boolean bufferResponses) {
+            this.bufferResponses = bufferResponses;
+            return this;
+        }
+
+        /**
+         * @return a new instance of {@code OkHttp3Transport}.
+         */
+        public OkHttp3Transport build() {
+            return new OkHttp3Transport(this);
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import com.softwareleaf.confluence.rest.trace.Span;
+import com.softwareleaf.confluence.rest.trace.Tracer;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@code Transport} decorator that starts a span for each request, as a child of the
+ * span {@linkplain Span#current() current} on the calling thread.
+ * <p>The span covers the whole of the call, including any retries or failover made by
+ * the transports beneath it, and ends once the response body has been read, so that its
+ * duration includes the transfer of the body, and its size is known even when the server
+ * does not declare it.
+ *
+ * @author Jonathon Hope
+ * @see Tracer
+ */
+public class TracingTransport implements Transport {
+
+    private final Transport delegate;
+    private final Tracer tracer;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the transport to send requests with.
+     * @param tracer   the tracer to start spans with.
+     */
+    public TracingTransport(final Transport delegate, final Tracer tracer) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.tracer = Objects.requireNonNull(tracer);
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        final Span span = tracer.startSpan(request.getMethod(), Span.Kind.CLIENT, Span.current());
+        final URI uri = URI.create(request.getUrl());
+        span.setAttribute("http.request.method", request.getMethod())
+                .setAttribute("url.full", request.getUrl())
+                .setAttribute("server.address", uri.getHost())
+                .setAttribute("server.port", uri.getPort() < 0 ? defaultPort(uri) : uri.getPort());
+        if (request.getBody() != null && request.getBody().length() >= 0) {
+            span.setAttribute("http.request.body.size", request.getBody().length());
+        }
+        final CompletableFuture<Response> sent;
+        try {
+            sent = delegate.execute(request);
+        } catch (RuntimeException e) {
+            span.setAttribute("error.type", e.getClass().getName()).recordException(e).end();
+            throw e;
+        }
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        sent.whenComplete((r, failure) -> {
+            if (failure != null) {
+                span.setAttribute("error.type", failure.getClass().getName()).recordException(failure).end();
+                response.completeExceptionally(failure);
+                return;
+            }
+            span.setAttribute("http.response.status_code", r.getStatus());
+            if (r.getStatus() >= 400) {
+                span.setAttribute("error.type", Integer.toString(r.getStatus()));
+            }
+            if (r.getBody() == null) {
+                span.end();
+                response.complete(r);
+            } else {
+                final Response traced = new Response(r.getUrl(), r.getStatus(), r.getReason(), r.getHeaders(),
+                        new TracedInput(r.getBody(), span));
+                // closing the body of a response the caller cancelled also ends its span.
+                Transports.completeOrDiscard(response, traced);
+            }
+        });
+        Transports.propagateCancel(response, sent);
+        return response;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private static int defaultPort(final URI uri) {
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    /**
+     * A response body that ends its span once it has been read, or closed.
+     */
+    private static final class TracedInput implements TypedInput {
+        private final TypedInput body;
+        private final Span span;
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private long bytes;
+
+        TracedInput(final TypedInput body, final Span span) {
+            this.body = body;
+            this.span = span;
+        }
+
+        @Override
+        public String mimeType() {
+            return body.mimeType();
+        }
+
+        @Override
+        public long length() {
+            return body.length();
+        }
+
+        @Override
+        public InputStream in() throws IOException {
+            final InputStream in;
+            try {
+                in = body.in();
+            } catch (IOException | RuntimeException e) {
+                span.recordException(e);
+                end();
+                throw e;
+            }
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    final byte[] one = new byte[1];
+                    final int n = read(one, 0, 1);
+                    return n <= 0 ? -1 : one[0] & 0xff;
+                }
+
+                @Override
+                public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                    final int n;
+                    try {
+                        n = super.read(buffer, offset, length);
+                    } catch (IOException e) {
+                        span.recordException(e);
+                        end();
+                        throw e;
+                    }
+                    if (n < 0) {
+                        end();
+                    } else {
+                        bytes += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        end();
+                    }
+                }
+            };
+        }
+
+        private void end() {
+            if (ended.compareAndSet(false, true)) {
+                span.setAttribute("http.response.body.size", bytes).end();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Executes the HTTP requests made by a {@code ConfluenceClient}.
+ * <p>Requests and responses are those of Retrofit, which builds and parses them; a
+ * transport only moves them over the network. Execution is asynchronous, so that an
+ * implementation can have many requests in flight without a thread for each, while the
+ * client itself can continue to wait for the response of a synchronous call.
+ * <p>Implementations must be thread safe. Transports may also be layered: a transport may
+ * decorate another to add behaviour to every request, such as limits or retries.
+ *
+ * @author Jonathon Hope
+ * @see OkHttp3Transport
+ * @see ClientTransport
+ * @see com.softwareleaf.confluence.rest.ConfluenceClient.Builder#transport(Transport)
+ */
+public interface Transport extends AutoCloseable {
+
+    /**
+     * Sends a request.
+     *
+     * @param request the request.
+     * @return a future of the response, which completes exceptionally with an
+     * {@code IOException} if no response is received. Responses with an error status
+     * complete normally.
+     */
+    CompletableFuture<Response> execute(Request request);
+
+    /**
+     * Releases the resources of this transport; by default, nothing.
+     */
+    @Override
+    default void close() {
+    }
+
+}
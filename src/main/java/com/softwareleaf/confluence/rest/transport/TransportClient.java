@@ -0,0 +1,70 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Adapts a {@code Transport} to the synchronous Retrofit {@link Client} interface, so
+ * that it can be set on a {@code RestAdapter}.
+ *
+ * @author Jonathon Hope
+ */
+public class TransportClient implements Client {
+
+    private final Transport transport;
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport to execute requests with.
+     */
+    public TransportClient(final Transport transport) {
+        this.transport = Objects.requireNonNull(transport);
+    }
+
+    /**
+     * @return the transport requests are executed with.
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Executes a request, waiting for its response.
+     *
+     * @param request the request.
+     * @return the response.
+     * @throws IOException if the transport fails to receive a response, or the calling
+     *                     thread is interrupted while waiting for it, in which case the
+     *                     request is cancelled.
+     */
+    @Override
+    public Response execute(final Request request) throws IOException {
+        final CompletableFuture<Response> response = transport.execute(request);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            // the response is no longer wanted, so the request is cancelled.
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for " + request.getUrl());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.softwareleaf.confluence.rest.transport;
+
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers shared by the {@code Transport} decorators.
+ *
+ * @author Jonathon Hope
+ */
+final class Transports {
+
+    private Transports() {
+    }
+
+    /**
+     * @param url an absolute URL.
+     * @return its host name, with its port if not the default.
+     */
+    static String hostOf(final String url) {
+        final URI uri = URI.create(url);
+        return uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+
+    /**
+     * Cancels a request when the future returned to its caller is cancelled.
+     *
+     * @param from the future returned to the caller.
+     * @param to   the future of the request, as sent to the transport beneath.
+     */
+    static void propagateCancel(final CompletableFuture<?> from, final Future<?> to) {
+        propagateCancel(from, () -> to.cancel(true));
+    }
+
+    /**
+     * Runs {@code cancel} when the future returned to a caller is cancelled.
+     *
+     * @param from   the future returned to the caller.
+     * @param cancel cancels the request.
+     */
+    static void propagateCancel(final CompletableFuture<?> from, final Runnable cancel) {
+        from.whenComplete((r, e) -> {
+            if (from.isCancelled()) {
+                cancel.run();
+            }
+        });
+    }
+
+    /**
+     * Returns a response to the caller; or, if the caller has cancelled, discards it.
+     *
+     * @param future   the future returned to the caller.
+     * @param response the response.
+     */
+    static void completeOrDiscard(final CompletableFuture<Response> future, final Response response) {
+        if (!future.complete(response)) {
+            discard(response);
+        }
+    }
+
+    /**
+     * Releases the connection of a response that will not be returned to the caller.
+     *
+     * @param response the response.
+     */
+    static void discard(final Response response) {
+        if (response.getBody() == null) {
+            return;
+        }
+        try {
+            // closed unread.
+            response.getBody().in().close();
+        } catch (IOException ignored) {
+            // the response is being abandoned anyway.
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.softwareleaf.confluence.rest.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@code Writer} that escapes everything written to it as the contents of a JSON
+ * string, and passes the result on to another {@code Writer}. The enclosing quotes
+ * are not written.
+ * <p>Like a {@code Gson} instance with HTML escaping disabled, only the characters
+ * that JSON requires to be escaped are escaped; so {@literal <, > and &} in storage
+ * format markup are written as is.
+ *
+ * @author Jonathon Hope
+ */
+public class JsonStringWriter extends Writer {
+
+    /**
+     * The escape sequence for each character below {@code 128} that needs one,
+     * otherwise {@code null}.
+     */
+    private static final String[] REPLACEMENTS = new String[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            REPLACEMENTS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENTS['"'] = "\\\"";
+        REPLACEMENTS['\\'] = "\\\\";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\f'] = "\\f";
+    }
+
+    /**
+     * The destination of the escaped characters.
+     */
+    private final Writer out;
+
+    /**
+     * Constructor.
+     *
+     * @param out the destination of the escaped characters.
+     */
+    public JsonStringWriter(final Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        final int end = off + len;
+        // write runs of characters that need no escaping in a single call.
+        int last = off;
+        for (int i = off; i < end; i++) {
+            final String replacement = replacementFor(cbuf[i]);
+            if (replacement != null) {
+                if (last < i) {
+                    out.write(cbuf, last, i - last);
+                }
+                out.write(replacement);
+                last = i + 1;
+            }
+        }
+        if (last < end) {
+            out.write(cbuf, last, end - last);
+        }
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len) throws IOException {
+        final int end = off + len;
+        int last = off;
+        for (int i = off; i < end; i++) {
+            final String replacement = replacementFor(str.charAt(i));
+            if (replacement != null) {
+                if (last < i) {
+                    out.write(str, last, i - last);
+                }
+                out.write(replacement);
+                last = i + 1;
+            }
+        }
+        if (last < end) {
+            out.write(str, last, end - last);
+        }
+    }
+
+    @Override
+    public void write(final int c) throws IOException {
+        final String replacement = replacementFor((char) c);
+        if (replacement != null) {
+            out.write(replacement);
+        } else {
+            out.write(c);
+        }
+    }
+
+    @Override
+    public Writer append(final CharSequence csq) throws IOException {
+        final String str = String.valueOf(csq);
+        write(str, 0, str.length());
+        return this;
+    }
+
+    @Override
+    public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+        final String str = String.valueOf(csq);
+        write(str, start, end - start);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Flushes, but does not close, the underlying {@code Writer}; the caller is still
+     * expected to write the closing quote.
+     */
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+
+    private static String replacementFor(final char c) {
+        if (c < 128) {
+            return REPLACEMENTS[c];
+        }
+        // these are valid in JSON, but not in JavaScript source.
+        if (c == '\u2028') {
+            return "\\u2028";
+        }
+        if (c == '\u2029') {
+            return "\\u2029";
+        }
+        return null;
+    }
+
+}
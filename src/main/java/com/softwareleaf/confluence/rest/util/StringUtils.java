@@ -7,6 +7,7 @@ package com.softwareleaf.confluence.rest.util;
 import com.google.common.collect.Iterables;
 
 import java.util.Arrays;
+import java.util.Locale;
 
 /**
  * A collection of static {@code String} utilities.
@@ -25,11 +26,11 @@ public final class StringUtils {
         final String[] parts = str.split("_");
         if (parts.length > 0) {
             final StringBuilder sb = new StringBuilder();
-            sb.append(parts[0].toLowerCase());
+            sb.append(parts[0].toLowerCase(Locale.ROOT));
             for (String s : Iterables.skip(Arrays.asList(parts), 1)) {
                 sb.append(Character.toUpperCase(s.charAt(0)));
                 if (s.length() > 1) {
-                    sb.append(s.substring(1, s.length()).toLowerCase());
+                    sb.append(s.substring(1, s.length()).toLowerCase(Locale.ROOT));
                 }
             }
             return sb.toString();
@@ -53,7 +54,7 @@ public final class StringUtils {
         for (String s : str.split("_")) {
             sb.append(Character.toUpperCase(s.charAt(0)));
             if (s.length() > 1) {
-                sb.append(s.substring(1, s.length()).toLowerCase());
+                sb.append(s.substring(1, s.length()).toLowerCase(Locale.ROOT));
             }
         }
         return sb.toString();
@@ -66,8 +67,8 @@ public final class StringUtils {
      * @return the {@code String s} converted to {@literal "ProperCase"}.
      */
     public static String toProperCase(final String s) {
-        return s.substring(0, 1).toUpperCase() +
-                s.substring(1).toLowerCase();
+        return s.substring(0, 1).toUpperCase(Locale.ROOT) +
+                s.substring(1).toLowerCase(Locale.ROOT);
     }
 
 
@@ -0,0 +1,139 @@
+package com.softwareleaf.confluence.rest.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Single pass, table driven escaping of text for inclusion in XML, and in particular
+ * in the confluence storage format.
+ * <p>Characters that cannot be represented in XML 1.0 at all (the C0 control
+ * characters other than tab, line feed and carriage return) are dropped.
+ *
+ * @author Jonathon Hope
+ */
+public final class XmlEscaper {
+
+    /**
+     * Marks a character that must be dropped.
+     */
+    private static final String DROP = "";
+
+    /**
+     * The replacement for each character below {@code 128} that needs one when it
+     * appears in text or in a double quoted attribute value, otherwise {@code null}.
+     */
+    private static final String[] TEXT_REPLACEMENTS = new String[128];
+
+    /**
+     * The replacement for each character below {@code 128} that needs one when it
+     * appears in a CDATA section, otherwise {@code null}.
+     */
+    private static final String[] CDATA_REPLACEMENTS = new String[128];
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            if (i != '\t' && i != '\n' && i != '\r') {
+                TEXT_REPLACEMENTS[i] = DROP;
+                CDATA_REPLACEMENTS[i] = DROP;
+            }
+        }
+        TEXT_REPLACEMENTS['&'] = "&amp;";
+        TEXT_REPLACEMENTS['<'] = "&lt;";
+        TEXT_REPLACEMENTS['>'] = "&gt;";
+        TEXT_REPLACEMENTS['"'] = "&quot;";
+    }
+
+    private static final String CDATA_START = "<![CDATA[";
+    private static final String CDATA_END = "]]>";
+
+    // prevent instantiation.
+    private XmlEscaper() {
+    }
+
+    /**
+     * Escapes {@code text} so that it can be used as XML text or as a double quoted
+     * attribute value.
+     *
+     * @param text the text to escape.
+     * @return the escaped text.
+     */
+    public static String escape(final CharSequence text) {
+        final StringBuilder sb = new StringBuilder(text.length() + 16);
+        escape(text, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Escapes {@code text} so that it can be used as XML text or as a double quoted
+     * attribute value, appending the result to {@code out}.
+     *
+     * @param text the text to escape.
+     * @param out  the destination of the escaped text.
+     * @throws UncheckedIOException if {@code out} throws an {@code IOException}.
+     */
+    public static void escape(final CharSequence text, final Appendable out) {
+        try {
+            final int length = text.length();
+            // append runs of characters that need no escaping in a single call.
+            int last = 0;
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                final String replacement = c < 128 ? TEXT_REPLACEMENTS[c] : replacementFor(c);
+                if (replacement != null) {
+                    out.append(text, last, i).append(replacement);
+                    last = i + 1;
+                }
+            }
+            out.append(text, last, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes {@code text} as a CDATA section. Any {@literal "]]>"} within {@code text} is
+     * split across two CDATA sections, so that it does not end the section early.
+     * <pre>{@literal
+     *     "a ]]> b" => "<![CDATA[a ]]]]><![CDATA[> b]]>"
+     * }</pre>
+     *
+     * @param text the text to write.
+     * @param out  the destination of the CDATA section.
+     * @throws UncheckedIOException if {@code out} throws an {@code IOException}.
+     */
+    public static void writeCData(final CharSequence text, final Appendable out) {
+        try {
+            out.append(CDATA_START);
+            final int length = text.length();
+            int last = 0;
+            // the number of consecutive ']' characters written, ignoring dropped characters.
+            int brackets = 0;
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                final String replacement = c < 128 ? CDATA_REPLACEMENTS[c] : replacementFor(c);
+                if (replacement != null) {
+                    out.append(text, last, i).append(replacement);
+                    last = i + 1;
+                } else if (c == ']') {
+                    brackets++;
+                } else {
+                    if (c == '>' && brackets >= 2) {
+                        // close after the "]]", and reopen before the '>'.
+                        out.append(text, last, i).append(CDATA_END).append(CDATA_START);
+                        last = i;
+                    }
+                    brackets = 0;
+                }
+            }
+            out.append(text, last, length).append(CDATA_END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the non-characters U+FFFE and U+FFFF are not allowed in XML.
+    private static String replacementFor(final char c) {
+        return c >= '\uFFFE' ? DROP : null;
+    }
+
+}